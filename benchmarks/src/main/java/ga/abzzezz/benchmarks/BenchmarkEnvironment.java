@@ -0,0 +1,39 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.benchmarks;
+
+import nu.pattern.OpenCV;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+/**
+ * Prepares a benchmark fork: loads opencv and points the application directory to a temporary one,
+ * so benchmarks never touch the user's configs and logs
+ */
+final class BenchmarkEnvironment {
+    private static boolean initialised;
+
+    private BenchmarkEnvironment() {
+    }
+
+    /**
+     * Has to run before the application's singleton is first used
+     */
+    static synchronized void init() {
+        if (initialised) return;
+        try {
+            System.setProperty("user.home", Files.createTempDirectory("text-recognition-bench").toString());
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        OpenCV.loadLocally();
+        initialised = true;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.benchmarks;
+
+import ga.abzzezz.Singleton;
+import ga.abzzezz.config.Config;
+import ga.abzzezz.config.ConfigHandler;
+import ga.abzzezz.util.FileUtil;
+import ga.abzzezz.vertex.VertexHandler;
+import org.opencv.core.Point;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a config for all modes, and loading a config directory of such configs
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigBenchmark {
+    @Param({"20"})
+    public int configCount;
+
+    private ConfigHandler configHandler;
+    private String configText;
+
+    @Setup
+    public void setup() {
+        BenchmarkEnvironment.init();
+        Singleton.INSTANCE.load();
+        configHandler = Singleton.INSTANCE.getConfigHandler();
+
+        final VertexHandler vertexHandler = Singleton.INSTANCE.getVertexHandler();
+        for (int i = 0; i < 3; i++) {
+            vertexHandler.addPoint(0, new Point(10 + i * 100, 10));
+            vertexHandler.addPoint(1, new Point(90 + i * 100, 10));
+            vertexHandler.addPoint(2, new Point(90 + i * 100, 50));
+            vertexHandler.addPoint(3, new Point(10 + i * 100, 50));
+            vertexHandler.move("region" + i);
+            vertexHandler.clearPoints();
+        }
+        for (int i = 0; i < configCount; i++) configHandler.saveConfig(configHandler.createAllConfig("config" + i, new int[]{90, 90}));
+
+        final File[] files = Optional.ofNullable(Singleton.INSTANCE.getConfigDir().listFiles((dir, name) -> name.endsWith(ConfigHandler.CONFIG_EXTENSION))).orElse(new File[0]);
+        configText = FileUtil.getFileContentsAsString(files[0]);
+    }
+
+    @Benchmark
+    public Config readConfig() {
+        return configHandler.readConfig(configText);
+    }
+
+    @Benchmark
+    public int loadConfigs() {
+        configHandler.loadConfigs();
+        return configHandler.getConfigs().size();
+    }
+}
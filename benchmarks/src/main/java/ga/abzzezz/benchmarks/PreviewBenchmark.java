@@ -0,0 +1,78 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.benchmarks;
+
+import ga.abzzezz.util.SwingFXUtils;
+import javafx.scene.image.Image;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Getting a frame to the screen and back: the former png encode / decode preview,
+ * the BGRA conversion the preview renderer does before handing a frame to the fx thread,
+ * and the fx image to buffered image conversion
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Dprism.order=sw", "-XX:+IgnoreUnrecognizedVMOptions", "--add-exports=java.desktop/sun.awt.image=ALL-UNNAMED"})
+public class PreviewBenchmark {
+    private Mat frame, staging;
+    private MatOfByte encoded;
+    private Image image;
+    private BufferedImage bufferedImage;
+
+    @Setup
+    public void setup() {
+        BenchmarkEnvironment.init();
+        frame = SampleFrames.load("lcd");
+        staging = new Mat();
+        encoded = new MatOfByte();
+        image = encodedImage();
+        bufferedImage = SwingFXUtils.fromFXImage(image, null);
+    }
+
+    /**
+     * Preview as it was done before the pixel buffer renderer: encode to png and decode into an fx image
+     */
+    @Benchmark
+    public Image encodedImage() {
+        Imgcodecs.imencode(".png", frame, encoded);
+        return new Image(new ByteArrayInputStream(encoded.toArray()));
+    }
+
+    /**
+     * Conversion done by the preview renderer on the calling thread
+     */
+    @Benchmark
+    public Mat rendererConversion() {
+        Imgproc.cvtColor(frame, staging, Imgproc.COLOR_BGR2BGRA);
+        return staging;
+    }
+
+    @Benchmark
+    public BufferedImage fromFXImage() {
+        return SwingFXUtils.fromFXImage(image, bufferedImage);
+    }
+
+    @TearDown
+    public void tearDown() {
+        frame.release();
+        staging.release();
+        encoded.release();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.benchmarks;
+
+import ga.abzzezz.image.FrameProcessor;
+import ga.abzzezz.image.ProcessingParameters;
+import ga.abzzezz.image.ThresholdMode;
+import ga.abzzezz.vertex.Region;
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processing of a camera frame into binarized regions, as done for every live frame.
+ * The ROI is the display panel (rectified), the left half of the frame (rectified, larger) or none (whole frame)
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessingBenchmark {
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String frameSize;
+    @Param({"display", "half", "frame"})
+    public String roi;
+    @Param({"STATIC", "OTSU", "TILED"})
+    public ThresholdMode thresholdMode;
+
+    private FrameProcessor processor;
+    private Mat frame;
+    private ProcessingParameters parameters;
+
+    @Setup
+    public void setup() {
+        BenchmarkEnvironment.init();
+        final String[] size = frameSize.split("x");
+        final int width = Integer.parseInt(size[0]), height = Integer.parseInt(size[1]);
+        frame = SampleFrames.load("lcd", width, height);
+        processor = new FrameProcessor();
+        final List<Region> regions;
+        switch (roi) {
+            case "display":
+                regions = Collections.singletonList(SampleFrames.display(width, height));
+                break;
+            case "half":
+                regions = Collections.singletonList(SampleFrames.rectangle("half", 0, 0, width / 2, height));
+                break;
+            default:
+                regions = Collections.emptyList();
+                break;
+        }
+        parameters = ProcessingParameters.DEFAULT.withThresholdMode(thresholdMode).withThreshold1(100).withThreshold2(255).withRegions(regions);
+    }
+
+    @Benchmark
+    public int process() {
+        return processor.process(frame, parameters);
+    }
+
+    @TearDown
+    public void tearDown() {
+        frame.release();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.benchmarks;
+
+import ga.abzzezz.Singleton;
+import ga.abzzezz.image.FrameProcessor;
+import ga.abzzezz.image.ProcessingHandler;
+import ga.abzzezz.image.ProcessingParameters;
+import ga.abzzezz.recognition.EngineType;
+import ga.abzzezz.recognition.Reading;
+import ga.abzzezz.recognition.RecognitionEngine;
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recognition of a processed display roi. {@code doOCR} is the application's entry point and answers repeated rois
+ * from the recognition cache; {@code engine} calls the engine directly, as for a roi that was not seen before.
+ * Tesseract needs resources/tessdata, so run from the project directory
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecognitionBenchmark {
+    @Param({"lcd", "led", "meter"})
+    public String sample;
+    @Param({"SEVEN_SEGMENT", "CASCADE", "TESSERACT"})
+    public EngineType engineType;
+
+    private ProcessingHandler handler;
+    private RecognitionEngine engine;
+    private Mat roi;
+
+    @Setup
+    public void setup() {
+        BenchmarkEnvironment.init();
+        handler = Singleton.INSTANCE.getProcessingHandler();
+        handler.setEngine(engineType);
+        engine = handler.getRecognitionEngine(engineType);
+
+        roi = new Mat();
+        final Mat frame = SampleFrames.load(sample);
+        final FrameProcessor processor = new FrameProcessor();
+        processor.process(frame, ProcessingParameters.DEFAULT.withThreshold1(100).withThreshold2(255)
+                .withRegions(Collections.singletonList(SampleFrames.display(frame.width(), frame.height()))));
+        processor.getResult(0).copyTo(roi);
+        frame.release();
+    }
+
+    @Benchmark
+    public String doOCR() {
+        return handler.doOCR(roi);
+    }
+
+    @Benchmark
+    public Reading engine() {
+        return engine.recognize(roi);
+    }
+
+    @TearDown
+    public void tearDown() {
+        roi.release();
+    }
+}
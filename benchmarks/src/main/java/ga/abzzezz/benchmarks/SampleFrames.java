@@ -0,0 +1,89 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.benchmarks;
+
+import ga.abzzezz.vertex.Region;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.Point;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Checked-in 640x480 camera frames of seven-segment displays: lcd (12.34), led (-0.57) and meter (8875).
+ * The display panel is at the same place in every frame
+ */
+final class SampleFrames {
+    /**
+     * Size of the sample frames
+     */
+    static final int WIDTH = 640, HEIGHT = 480;
+    /**
+     * Display panel in the sample frames: x0, y0, x1, y1
+     */
+    private static final int[] DISPLAY = {160, 180, 480, 300};
+
+    private SampleFrames() {
+    }
+
+    /**
+     * @param name   sample name
+     * @param width  width to scale to
+     * @param height height to scale to
+     * @return BGR frame
+     */
+    static Mat load(final String name, final int width, final int height) {
+        final Mat frame = load(name);
+        if (frame.width() != width || frame.height() != height)
+            Imgproc.resize(frame, frame, new Size(width, height), 0, 0, Imgproc.INTER_LINEAR);
+        return frame;
+    }
+
+    /**
+     * @param name sample name
+     * @return BGR frame
+     */
+    static Mat load(final String name) {
+        try (final InputStream in = SampleFrames.class.getResourceAsStream("/frames/" + name + ".png")) {
+            if (in == null) throw new IllegalArgumentException("No sample frame " + name);
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) bytes.write(buffer, 0, read);
+            final MatOfByte encoded = new MatOfByte(bytes.toByteArray());
+            final Mat frame = Imgcodecs.imdecode(encoded, Imgcodecs.IMREAD_COLOR);
+            encoded.release();
+            return frame;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param width  frame width
+     * @param height frame height
+     * @return region around the display panel, scaled to the frame size
+     */
+    static Region display(final int width, final int height) {
+        return rectangle("display", DISPLAY[0] * width / WIDTH, DISPLAY[1] * height / HEIGHT, DISPLAY[2] * width / WIDTH, DISPLAY[3] * height / HEIGHT);
+    }
+
+    /**
+     * @return rectangular region
+     */
+    static Region rectangle(final String name, final int x0, final int y0, final int x1, final int y1) {
+        return new Region(name, Arrays.asList(new Point(x0, y0), new Point(x1, y0), new Point(x1, y1), new Point(x0, y1)));
+    }
+}
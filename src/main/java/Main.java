@@ -6,17 +6,36 @@
  */
 
 import ga.abzzezz.Singleton;
+import ga.abzzezz.batch.BatchProcessor;
+import ga.abzzezz.batch.ParameterSweep;
+import ga.abzzezz.batch.PipelineBenchmark;
 import nu.pattern.OpenCV;
 
+import java.util.Arrays;
+
 public class Main {
     /**
      * Default java main method.
-     * Loads opencv's libraries and starts the main application
+     * Loads opencv's libraries and starts the main application,
+     * a headless batch run if the first argument is --batch, a headless pipeline benchmark if it is --bench
+     * or a parameter sweep if it is --tune
      *
      * @param args given arguments
      */
     public static void main(final String[] args) {
         OpenCV.loadLocally();
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchProcessor.main(Arrays.copyOfRange(args, 1, args.length));
+            System.exit(0);
+        }
+        if (args.length > 0 && args[0].equals("--bench")) {
+            PipelineBenchmark.main(Arrays.copyOfRange(args, 1, args.length));
+            System.exit(0);
+        }
+        if (args.length > 0 && args[0].equals("--tune")) {
+            ParameterSweep.main(Arrays.copyOfRange(args, 1, args.length));
+            System.exit(0);
+        }
         Singleton.INSTANCE.setup(args);
     }
 }
@@ -10,6 +10,8 @@ package ga.abzzezz;
 import com.fazecast.jSerialComm.SerialPort;
 import ga.abzzezz.config.ConfigHandler;
 import ga.abzzezz.image.ProcessingHandler;
+import ga.abzzezz.management.ManagementBeans;
+import ga.abzzezz.pipeline.OverflowPolicy;
 import ga.abzzezz.rotation.RotationHandler;
 import ga.abzzezz.serial.SerialHandler;
 import ga.abzzezz.setting.SettingsHandler;
@@ -77,6 +79,15 @@ public class Singleton {
      * @param mainArgs java arguments passed on from the main method
      */
     public void setup(final String[] mainArgs) {
+        load();
+        /* Launch Java FX application */
+        new App().launch0(mainArgs);
+    }
+
+    /**
+     * Load settings and configs without launching the application (for headless runs)
+     */
+    public void load() {
         /* Check if needed directories exist, if they don't create them */
         if (!mainDir.exists()) mainDir.mkdirs();
         if (!configDir.exists()) configDir.mkdir();
@@ -100,16 +111,26 @@ public class Singleton {
             getProcessingHandler().setThreshold1(jsonObject.getDouble("threshold1"));
             getProcessingHandler().setThreshold2(jsonObject.getDouble("threshold2"));
             getProcessingHandler().setCamIndex(jsonObject.getInt("camIndex"));
+            getProcessingHandler().setRecognitionRate(jsonObject.optDouble("recognitionRate", getProcessingHandler().getRecognitionRate()));
+            getProcessingHandler().setChangeTolerance(jsonObject.optDouble("changeTolerance", getProcessingHandler().getChangeTolerance()));
+            getProcessingHandler().setVoting(jsonObject.optInt("voteWindow", getProcessingHandler().getVoteWindow()),
+                    jsonObject.optInt("voteQuorum", getProcessingHandler().getVoteQuorum()), jsonObject.optInt("maxSampleStride", getProcessingHandler().getMaxSampleStride()));
+            getProcessingHandler().getRecognitionCache().setMaxSize(jsonObject.optInt("cacheSize", getProcessingHandler().getRecognitionCache().getMaxSize()));
+            getProcessingHandler().getRecognitionCache().setTtlSeconds(jsonObject.optLong("cacheTtl", getProcessingHandler().getRecognitionCache().getTtlSeconds()));
+            getProcessingHandler().setTesseractInstances(jsonObject.optInt("tesseractInstances", getProcessingHandler().getTesseractInstances()));
+            getProcessingHandler().setQueueCapacity(jsonObject.optInt("queueCapacity", getProcessingHandler().getQueueCapacity()));
+            getProcessingHandler().setOverflowPolicy(jsonObject.optEnum(OverflowPolicy.class, "overflowPolicy", getProcessingHandler().getOverflowPolicy()));
         }
         /* Load configs */
         getConfigHandler().loadConfigs();
-        /* Launch Java FX application */
-        new App().launch0(mainArgs);
+        /* Expose live state over JMX */
+        ManagementBeans.register();
     }
 
     public void shutdown() {
         getSettingsHandler().storeSettings();
         getProcessingHandler().stop();
+        getProcessingHandler().stopRecording();
         System.exit(0);
     }
 
@@ -0,0 +1,332 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.batch;
+
+import ga.abzzezz.Singleton;
+import ga.abzzezz.config.Config;
+import ga.abzzezz.image.FrameProcessor;
+import ga.abzzezz.recognition.Reading;
+import ga.abzzezz.source.ImageSequenceSource;
+import ga.abzzezz.source.VideoFileSource;
+import ga.abzzezz.util.QuickLog;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless OCR over a directory of images or a video file, with the processing and recognition of live mode.
+ * Frames are processed in parallel on a work-stealing pool, every result is appended to a JSONL file as one line.
+ * Sources already in the output file are skipped, so an interrupted run can be resumed by starting it again
+ */
+public class BatchProcessor {
+    /**
+     * Seconds between progress reports
+     */
+    private static final int PROGRESS_INTERVAL = 5;
+
+    private final File input, output;
+    private final int threads;
+    private final ForkJoinPool pool;
+    /**
+     * Processor per pool thread
+     */
+    private final ThreadLocal<FrameProcessor> processors = ThreadLocal.withInitial(FrameProcessor::new);
+    /**
+     * Sources (file names or video frame keys) already in the output file
+     */
+    private final Set<String> done = new HashSet<>();
+    private final LongAdder processed = new LongAdder(), skipped = new LongAdder(), failed = new LongAdder();
+    private Writer writer;
+
+    /**
+     * @param input   directory of images or a video file
+     * @param output  JSONL file to append the results to
+     * @param threads number of worker threads
+     */
+    public BatchProcessor(final File input, final File output, final int threads) {
+        this.input = input;
+        this.output = output;
+        this.threads = Math.max(1, threads);
+        this.pool = new ForkJoinPool(this.threads);
+    }
+
+    /**
+     * Run the batch. The config has to be loaded before
+     *
+     * @throws IOException if the output can not be written
+     */
+    public void run() throws IOException {
+        readDone();
+        if (output.getParentFile() != null && !output.getParentFile().exists()) output.getParentFile().mkdirs();
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output, true), StandardCharsets.UTF_8));
+        final ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "batch-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long start = System.nanoTime();
+        progress.scheduleAtFixedRate(() -> report(start), PROGRESS_INTERVAL, PROGRESS_INTERVAL, TimeUnit.SECONDS);
+        try {
+            if (input.isDirectory()) runImages();
+            else runVideo();
+        } finally {
+            progress.shutdownNow();
+            pool.shutdown();
+            synchronized (this) {
+                writer.close();
+            }
+        }
+        report(start);
+        QuickLog.log("Batch done: " + processed.sum() + " frames, " + skipped.sum() + " already done, " + failed.sum() + " failed", QuickLog.LogType.INFO);
+    }
+
+    /**
+     * Process all images of the input directory, in name order
+     */
+    private void runImages() {
+        final File[] files = Optional.ofNullable(input.listFiles(ImageSequenceSource::isImage)).orElse(new File[0]);
+        Arrays.sort(files);
+        QuickLog.log("Batch over " + files.length + " images with " + threads + " threads", QuickLog.LogType.INFO);
+        try {
+            pool.submit(() -> Arrays.stream(files).parallel().forEach(this::processImage)).get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            QuickLog.log("Batch over images", QuickLog.LogType.ERROR);
+            e.getCause().printStackTrace();
+        }
+    }
+
+    private void processImage(final File file) {
+        if (done.contains(file.getName())) {
+            skipped.increment();
+            return;
+        }
+        final Mat image = Imgcodecs.imread(file.getAbsolutePath(), Imgcodecs.IMREAD_COLOR);
+        try {
+            if (image.empty()) {
+                failed.increment();
+                QuickLog.log("Could not read " + file.getName(), QuickLog.LogType.WARNING);
+                return;
+            }
+            write(file.getName(), file.lastModified(), recognize(image));
+        } catch (final RuntimeException e) {
+            fail(file.getName(), e);
+        } finally {
+            image.release();
+        }
+    }
+
+    /**
+     * Decode the video on the calling thread and recognize its frames on the pool.
+     * Decoded frames come from a fixed set of buffers, so at most a few frames per thread are in flight
+     */
+    private void runVideo() {
+        final VideoFileSource video = new VideoFileSource(input);
+        if (!video.isOpened()) {
+            QuickLog.log("Could not open video " + input, QuickLog.LogType.ERROR);
+            return;
+        }
+        QuickLog.log("Batch over " + video.getFrameCount() + " video frames with " + threads + " threads", QuickLog.LogType.INFO);
+        final BlockingQueue<Mat> buffers = new ArrayBlockingQueue<>(threads * 2);
+        for (int i = 0; i < threads * 2; i++) buffers.add(new Mat());
+        final Phaser inFlight = new Phaser(1);
+        try {
+            while (true) {
+                final String source = input.getName() + "#" + video.getIndex();
+                if (done.contains(source)) {
+                    if (!video.skip()) break;
+                    skipped.increment();
+                    continue;
+                }
+                final Mat frame = buffers.take();
+                if (!video.read(frame)) {
+                    buffers.add(frame);
+                    break;
+                }
+                final long timestamp = video.getTimestamp();
+                inFlight.register();
+                pool.execute(() -> {
+                    try {
+                        write(source, timestamp, recognize(frame));
+                    } catch (final RuntimeException e) {
+                        fail(source, e);
+                    } finally {
+                        buffers.add(frame);
+                        inFlight.arriveAndDeregister();
+                    }
+                });
+            }
+            inFlight.arriveAndAwaitAdvance();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            video.close();
+            for (final Mat buffer : buffers) buffer.release();
+        }
+    }
+
+    /**
+     * Count a frame whose processing failed and go on with the others
+     *
+     * @param source file name or video frame key
+     * @param e      failure
+     */
+    private void fail(final String source, final RuntimeException e) {
+        failed.increment();
+        QuickLog.log("Processing " + source + " failed", QuickLog.LogType.ERROR);
+        e.printStackTrace();
+    }
+
+    private Map<String, Reading> recognize(final Mat frame) {
+        return Singleton.INSTANCE.getProcessingHandler().recognizeImage(frame, processors.get());
+    }
+
+    /**
+     * Append one result line and flush it, so a crash loses at most the line being written
+     *
+     * @param source    file name or video frame key
+     * @param timestamp file modification time or position in the video (ms)
+     * @param readings  readings by region name
+     */
+    private void write(final String source, final long timestamp, final Map<String, Reading> readings) {
+        final JSONObject regions = new JSONObject();
+        readings.forEach((region, reading) -> regions.put(region, new JSONObject().put("guess", reading.getText()).put("confidence", reading.getConfidence())));
+        final String line = new JSONObject().put("source", source).put("timestamp", timestamp)
+                .put("profile", Singleton.INSTANCE.getConfigHandler().getCurrentConfig()).put("readings", regions).toString();
+        synchronized (this) {
+            try {
+                writer.write(line);
+                writer.write('\n');
+                writer.flush();
+            } catch (final IOException e) {
+                failed.increment();
+                QuickLog.log("Writing result of " + source, QuickLog.LogType.ERROR);
+                e.printStackTrace();
+                return;
+            }
+        }
+        processed.increment();
+    }
+
+    /**
+     * Collect the sources of an existing output file. Incomplete lines (from an interrupted run) are ignored
+     *
+     * @throws IOException if the file can not be read
+     */
+    private void readDone() throws IOException {
+        if (!output.isFile()) return;
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(output), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    done.add(new JSONObject(line).getString("source"));
+                } catch (final JSONException e) {
+                    QuickLog.log("Ignoring incomplete result line", QuickLog.LogType.WARNING);
+                }
+            }
+        }
+        if (!done.isEmpty()) QuickLog.log("Resuming, " + done.size() + " sources already done", QuickLog.LogType.INFO);
+        dropIncompleteLine();
+    }
+
+    /**
+     * Cut off a line left incomplete by an interrupted run, so new lines are not appended to it
+     *
+     * @throws IOException if the file can not be written
+     */
+    private void dropIncompleteLine() throws IOException {
+        try (final RandomAccessFile file = new RandomAccessFile(output, "rw")) {
+            long end = file.length();
+            while (end > 0) {
+                file.seek(end - 1);
+                if (file.read() == '\n') break;
+                end--;
+            }
+            if (end < file.length()) file.setLength(end);
+        }
+    }
+
+    /**
+     * Log the progress and the throughput so far
+     *
+     * @param start time the run started (ns)
+     */
+    private void report(final long start) {
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        QuickLog.log(String.format("%d frames processed, %.1f frames/s", processed.sum(), seconds == 0 ? 0 : processed.sum() / seconds), QuickLog.LogType.INFO);
+    }
+
+    /**
+     * Load the settings and a config without launching the application. The servos are not moved
+     *
+     * @param name config name
+     * @return false if there is no config with the name
+     */
+    static boolean loadHeadless(final String name) {
+        Singleton.INSTANCE.load();
+        final Optional<Config> config = Singleton.INSTANCE.getConfigHandler().findConfig(name);
+        if (!config.isPresent()) {
+            QuickLog.log("No config named " + name, QuickLog.LogType.ERROR);
+            return false;
+        }
+        Singleton.INSTANCE.getConfigHandler().loadConfig(config.get(), false);
+        return true;
+    }
+
+    /**
+     * Parse an optional thread count argument
+     *
+     * @param args  arguments
+     * @param index index of the thread count
+     * @return thread count, the number of cores if the argument is missing. Empty if it is no positive number
+     */
+    static OptionalInt parseThreads(final String[] args, final int index) {
+        if (args.length <= index) return OptionalInt.of(Runtime.getRuntime().availableProcessors());
+        try {
+            final int threads = Integer.parseInt(args[index]);
+            return threads > 0 ? OptionalInt.of(threads) : OptionalInt.empty();
+        } catch (final NumberFormatException e) {
+            return OptionalInt.empty();
+        }
+    }
+
+    /**
+     * Entry point for batch runs: {@code --batch <image directory | video file> <config name> [output.jsonl] [threads]}
+     *
+     * @param args arguments after --batch
+     */
+    public static void main(final String[] args) {
+        final OptionalInt threads = parseThreads(args, 3);
+        if (args.length < 2 || !threads.isPresent()) {
+            QuickLog.log("Usage: --batch <image directory | video file> <config name> [output.jsonl] [threads]", QuickLog.LogType.ERROR);
+            return;
+        }
+        final File input = new File(args[0]);
+        if (!input.exists()) {
+            QuickLog.log("No such input: " + input, QuickLog.LogType.ERROR);
+            return;
+        }
+        if (!loadHeadless(args[1])) return;
+
+        final File output = args.length > 2 ? new File(args[2]) : new File(new File(Singleton.INSTANCE.getMainDir(), "batch"), input.getName() + ".jsonl");
+        try {
+            new BatchProcessor(input, output, threads.getAsInt()).run();
+        } catch (final IOException e) {
+            QuickLog.log("Batch run", QuickLog.LogType.ERROR);
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.batch;
+
+import ga.abzzezz.Singleton;
+import ga.abzzezz.config.Config;
+import ga.abzzezz.image.FrameProcessor;
+import ga.abzzezz.image.ProcessingHandler;
+import ga.abzzezz.image.ProcessingParameters;
+import ga.abzzezz.image.ThresholdMode;
+import ga.abzzezz.metrics.LatencyHistogram;
+import ga.abzzezz.recognition.Reading;
+import ga.abzzezz.source.VideoFileSource;
+import ga.abzzezz.util.QuickLog;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Finds processing parameters for a config offline: every combination of threshold, blur and erode kernel is run
+ * over recorded frames with known readings, in parallel on a work-stealing pool. The combinations are ranked by accuracy,
+ * then confidence, then latency; the best one is saved as an all mode config next to a report of all combinations.
+ * <p>
+ * Expected readings use the lines of a batch result ({@code source} and {@code readings} by region),
+ * so a batch run with its readings corrected by hand can be used directly
+ */
+public class ParameterSweep {
+    /**
+     * Static thresholds tried, the adaptive modes are tried as well
+     */
+    public static final int[] THRESHOLDS = {40, 60, 80, 100, 120, 140, 160, 180, 200, 220};
+    public static final int[] BLUR_SIZES = {0, 3, 5};
+    public static final int[] KERNEL_SIZES = {1, 3, 5, 7};
+
+    private final List<Sample> samples;
+    private final ProcessingParameters base;
+    private final ProcessingHandler handler;
+    private final ForkJoinPool pool;
+    private final AtomicInteger evaluated = new AtomicInteger();
+
+    /**
+     * @param samples frames with their expected readings
+     * @param base    parameters of the config (regions, engine, max value) the grid is varied from
+     * @param threads number of worker threads
+     */
+    public ParameterSweep(final List<Sample> samples, final ProcessingParameters base, final int threads) {
+        this.samples = samples;
+        this.base = base;
+        this.handler = Singleton.INSTANCE.getProcessingHandler();
+        this.pool = new ForkJoinPool(Math.max(1, threads));
+    }
+
+    /**
+     * @return every combination of threshold, blur and kernel
+     */
+    public List<ProcessingParameters> grid() {
+        final List<ProcessingParameters> grid = new ArrayList<>();
+        for (final int blur : BLUR_SIZES) {
+            for (final int kernel : KERNEL_SIZES) {
+                final ProcessingParameters filters = base.withBlurSize(blur).withKernelSize(kernel);
+                for (final int threshold : THRESHOLDS) grid.add(filters.withThresholdMode(ThresholdMode.STATIC).withThreshold1(threshold));
+                grid.add(filters.withThresholdMode(ThresholdMode.OTSU));
+                grid.add(filters.withThresholdMode(ThresholdMode.TILED));
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Evaluate the whole grid
+     *
+     * @return results, best first
+     * @throws InterruptedException if interrupted while waiting for the pool
+     */
+    public List<Result> run() throws InterruptedException {
+        final List<ProcessingParameters> grid = grid();
+        QuickLog.log("Sweeping " + grid.size() + " combinations over " + samples.size() + " frames with " + pool.getParallelism() + " threads", QuickLog.LogType.INFO);
+        try {
+            return pool.submit(() -> grid.parallelStream().map(parameters -> evaluate(parameters, grid.size())).sorted().collect(Collectors.toList())).get();
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("Sweep failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Run all frames through one combination, in order, with a processor of its own (adaptive thresholds keep state between frames)
+     */
+    private Result evaluate(final ProcessingParameters parameters, final int combinations) {
+        final FrameProcessor processor = new FrameProcessor();
+        final Result result = new Result(parameters);
+        try {
+            for (final Sample sample : samples) {
+                final long start = System.nanoTime();
+                final int count = processor.process(sample.frame, parameters);
+                for (int i = 0; i < count; i++) {
+                    final String expected = sample.expected.get(processor.getResultNames().get(i));
+                    if (expected == null) continue;
+                    final Reading reading = handler.recognizeUncached(processor.getResult(i), parameters);
+                    result.total++;
+                    result.confidence += reading.getConfidence();
+                    if (reading.getText().trim().equals(expected)) result.correct++;
+                }
+                result.latency.record(System.nanoTime() - start);
+            }
+        } finally {
+            processor.release();
+        }
+        final int done = evaluated.incrementAndGet();
+        if (done % Math.max(1, combinations / 10) == 0) QuickLog.log(done + " of " + combinations + " combinations evaluated", QuickLog.LogType.INFO);
+        return result;
+    }
+
+    /**
+     * Write one line per combination, best first
+     *
+     * @param results sorted results
+     * @param file    csv file to write
+     * @throws IOException if the file can not be written
+     */
+    public static void writeReport(final List<Result> results, final File file) throws IOException {
+        try (final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.write("rank,mode,threshold1,threshold2,blur,kernel,correct,total,accuracy,meanConfidence,p50Ms,p99Ms\n");
+            for (int i = 0; i < results.size(); i++) {
+                final Result result = results.get(i);
+                final ProcessingParameters parameters = result.parameters;
+                writer.write(String.format(Locale.ROOT, "%d,%s,%.0f,%.0f,%d,%d,%d,%d,%.4f,%.4f,%.3f,%.3f%n", i + 1, parameters.getThresholdMode(),
+                        parameters.getThreshold1(), parameters.getThreshold2(), parameters.getBlurSize(), parameters.getKernelSize(), result.correct, result.total,
+                        result.getAccuracy(), result.getMeanConfidence(), result.latency.getPercentile(0.5) / 1e6, result.latency.getPercentile(0.99) / 1e6));
+            }
+        }
+    }
+
+    /**
+     * Load the frames that have expected readings
+     *
+     * @param input    directory of images or a video file
+     * @param expected expected readings by source (file name or video frame key, like batch results)
+     * @return samples in source order
+     */
+    public static List<Sample> loadSamples(final File input, final Map<String, Map<String, String>> expected) {
+        final List<Sample> samples = new ArrayList<>();
+        if (input.isDirectory()) {
+            final List<String> sources = new ArrayList<>(expected.keySet());
+            Collections.sort(sources);
+            for (final String source : sources) {
+                final Mat frame = Imgcodecs.imread(new File(input, source).getAbsolutePath(), Imgcodecs.IMREAD_COLOR);
+                if (frame.empty()) QuickLog.log("Could not read " + source, QuickLog.LogType.WARNING);
+                else samples.add(new Sample(source, frame, expected.get(source)));
+            }
+            return samples;
+        }
+        final VideoFileSource video = new VideoFileSource(input);
+        if (!video.isOpened()) {
+            QuickLog.log("Could not open video " + input, QuickLog.LogType.ERROR);
+            return samples;
+        }
+        try {
+            while (true) {
+                final String source = input.getName() + "#" + video.getIndex();
+                if (!expected.containsKey(source)) {
+                    if (!video.skip()) break;
+                    continue;
+                }
+                final Mat frame = new Mat();
+                if (!video.read(frame)) break;
+                samples.add(new Sample(source, frame, expected.get(source)));
+            }
+        } finally {
+            video.close();
+        }
+        return samples;
+    }
+
+    /**
+     * Read expected readings from JSONL. Readings are either plain text or objects with a guess, like in batch results
+     *
+     * @param file JSONL file
+     * @return expected text by region, by source
+     * @throws IOException if the file can not be read
+     */
+    public static Map<String, Map<String, String>> readExpected(final File file) throws IOException {
+        final Map<String, Map<String, String>> expected = new LinkedHashMap<>();
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) continue;
+                try {
+                    final JSONObject json = new JSONObject(line);
+                    final JSONObject readings = json.getJSONObject("readings");
+                    final Map<String, String> regions = new HashMap<>();
+                    for (final String region : readings.keySet()) {
+                        final Object reading = readings.get(region);
+                        regions.put(region, (reading instanceof JSONObject ? ((JSONObject) reading).getString("guess") : reading.toString()).trim());
+                    }
+                    expected.put(json.getString("source"), regions);
+                } catch (final JSONException e) {
+                    QuickLog.log("Ignoring invalid expected reading: " + line, QuickLog.LogType.WARNING);
+                }
+            }
+        }
+        return expected;
+    }
+
+    /**
+     * Entry point: {@code --tune <image directory | video file> <expected.jsonl> <config name> [tuned config name] [threads]}
+     *
+     * @param args arguments after --tune
+     */
+    public static void main(final String[] args) {
+        final OptionalInt threads = BatchProcessor.parseThreads(args, 4);
+        if (args.length < 3 || !threads.isPresent()) {
+            QuickLog.log("Usage: --tune <image directory | video file> <expected.jsonl> <config name> [tuned config name] [threads]", QuickLog.LogType.ERROR);
+            return;
+        }
+        final File input = new File(args[0]);
+        if (!input.exists()) {
+            QuickLog.log("No such input: " + input, QuickLog.LogType.ERROR);
+            return;
+        }
+        if (!BatchProcessor.loadHeadless(args[2])) return;
+        final String tunedName = args.length > 3 ? args[3] : args[2] + "-tuned";
+
+        final List<Sample> samples;
+        try {
+            samples = loadSamples(input, readExpected(new File(args[1])));
+        } catch (final IOException e) {
+            QuickLog.log("Reading expected readings", QuickLog.LogType.ERROR);
+            e.printStackTrace();
+            return;
+        }
+        if (samples.isEmpty()) {
+            QuickLog.log("No frames with expected readings", QuickLog.LogType.ERROR);
+            return;
+        }
+
+        try {
+            final List<Result> results = new ParameterSweep(samples, Singleton.INSTANCE.getProcessingHandler().getParameters(), threads.getAsInt()).run();
+            final File reportDir = new File(Singleton.INSTANCE.getMainDir(), "tuning");
+            if (!reportDir.exists()) reportDir.mkdirs();
+            final File report = new File(reportDir, args[2].replaceAll("[^A-Za-z0-9_-]", "_") + "-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".csv");
+            writeReport(results, report);
+            for (int i = 0; i < Math.min(5, results.size()); i++) QuickLog.log("#" + (i + 1) + " " + results.get(i), QuickLog.LogType.INFO);
+            QuickLog.log("Report written to " + report, QuickLog.LogType.INFO);
+
+            /* The base config is still loaded, so the new config keeps its regions, rotations and engine settings */
+            Singleton.INSTANCE.getProcessingHandler().setParameters(results.get(0).parameters);
+            final Config tuned = Singleton.INSTANCE.getConfigHandler().createAllConfig(tunedName, Singleton.INSTANCE.getRotationHandler().getCurrentRotations());
+            Singleton.INSTANCE.getConfigHandler().saveConfig(tuned);
+            QuickLog.log("Saved best combination as config " + tunedName, QuickLog.LogType.INFO);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final IOException e) {
+            QuickLog.log("Writing sweep report", QuickLog.LogType.ERROR);
+            e.printStackTrace();
+        } finally {
+            for (final Sample sample : samples) sample.frame.release();
+        }
+    }
+
+    /**
+     * Recorded frame with the readings expected for its regions
+     */
+    public static class Sample {
+        private final String source;
+        private final Mat frame;
+        private final Map<String, String> expected;
+
+        public Sample(final String source, final Mat frame, final Map<String, String> expected) {
+            this.source = source;
+            this.frame = frame;
+            this.expected = expected;
+        }
+
+        public String getSource() {
+            return source;
+        }
+    }
+
+    /**
+     * Score of one combination. Results sort best first
+     */
+    public static class Result implements Comparable<Result> {
+        private final ProcessingParameters parameters;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private int correct, total;
+        private double confidence;
+
+        private Result(final ProcessingParameters parameters) {
+            this.parameters = parameters;
+        }
+
+        public ProcessingParameters getParameters() {
+            return parameters;
+        }
+
+        /**
+         * @return share of regions read as expected
+         */
+        public double getAccuracy() {
+            return total == 0 ? 0 : correct / (double) total;
+        }
+
+        public double getMeanConfidence() {
+            return total == 0 ? 0 : confidence / total;
+        }
+
+        /**
+         * @return time to process and recognize a frame
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        @Override
+        public int compareTo(final Result other) {
+            int order = Double.compare(other.getAccuracy(), getAccuracy());
+            if (order == 0) order = Double.compare(other.getMeanConfidence(), getMeanConfidence());
+            if (order == 0) order = Long.compare(latency.getPercentile(0.5), other.latency.getPercentile(0.5));
+            return order;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s threshold %.0f, blur %d, kernel %d: %d/%d correct, confidence %.2f, %s", parameters.getThresholdMode(), parameters.getThreshold1(),
+                    parameters.getBlurSize(), parameters.getKernelSize(), correct, total, getMeanConfidence(), latency);
+        }
+    }
+}
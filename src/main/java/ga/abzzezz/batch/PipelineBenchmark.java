@@ -0,0 +1,67 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.batch;
+
+import ga.abzzezz.Singleton;
+import ga.abzzezz.image.ProcessingHandler;
+import ga.abzzezz.pipeline.OverflowPolicy;
+import ga.abzzezz.pipeline.Pipeline;
+import ga.abzzezz.pipeline.Stage;
+import ga.abzzezz.source.FrameSources;
+import ga.abzzezz.source.ReplayMode;
+import ga.abzzezz.util.QuickLog;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless run of the capture pipeline over a recorded source, to measure throughput and latency without a camera.
+ * Every frame is handed to recognition, which skips regions like in live mode (stable votes, unchanged regions, cached rois);
+ * replayed as fast as possible, the queues block instead of dropping frames, so runs over the same source are comparable
+ */
+public class PipelineBenchmark {
+
+    /**
+     * Entry point: {@code --bench <video | image directory | raw stream> <config name> [recorded | unthrottled]}
+     *
+     * @param args arguments after --bench
+     */
+    public static void main(final String[] args) {
+        if (args.length < 2) {
+            QuickLog.log("Usage: --bench <video | image directory | raw stream> <config name> [recorded | unthrottled]", QuickLog.LogType.ERROR);
+            return;
+        }
+        if (!BatchProcessor.loadHeadless(args[1])) return;
+        final ReplayMode mode = args.length > 2 ? ReplayMode.valueOf(args[2].toUpperCase()) : ReplayMode.UNTHROTTLED;
+
+        final ProcessingHandler handler = Singleton.INSTANCE.getProcessingHandler();
+        handler.setSourceFactory(() -> FrameSources.open(args[0], mode));
+        if (mode == ReplayMode.UNTHROTTLED) handler.setOverflowPolicy(OverflowPolicy.BLOCK);
+
+        final long start = System.nanoTime();
+        handler.startStreaming(0);
+        final Optional<Pipeline> running = handler.getPipeline();
+        if (!running.isPresent()) return;
+        final Pipeline pipeline = running.get();
+        try {
+            while (!pipeline.isIdle()) TimeUnit.MILLISECONDS.sleep(10);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+
+        for (final Stage stage : pipeline.getStages()) {
+            QuickLog.log(String.format("Stage %s: %d frames, %.1f frames/s, %s, %d dropped", stage.getName(), stage.getProcessed(),
+                    stage.getProcessed() / seconds, stage.getLatency(), stage.getDropped()), QuickLog.LogType.INFO);
+        }
+        final long recognized = pipeline.getRecognitionLatency().getCount();
+        QuickLog.log(String.format("%d frames recognized in %.2f s, %.1f frames/s, grab to recognized %s, %d not handed to recognition",
+                recognized, seconds, recognized / seconds, pipeline.getRecognitionLatency(), pipeline.getRecognitionSkipped()), QuickLog.LogType.INFO);
+        handler.stop();
+    }
+}
@@ -9,15 +9,25 @@
 package ga.abzzezz.config;
 
 import ga.abzzezz.Singleton;
+import ga.abzzezz.image.ProcessingParameters;
+import ga.abzzezz.image.ProcessingWorkspace;
+import ga.abzzezz.image.ThresholdMode;
+import ga.abzzezz.recognition.CascadeEngine;
+import ga.abzzezz.recognition.DigitClassifier;
+import ga.abzzezz.recognition.EngineType;
 import ga.abzzezz.util.FileUtil;
 import ga.abzzezz.util.QuickLog;
+import ga.abzzezz.vertex.Region;
+import ga.abzzezz.vertex.VertexHandler;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.opencv.core.Point;
+import org.opencv.ml.KNearest;
 
 import javax.swing.*;
 import java.io.File;
 import java.util.*;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -42,34 +52,43 @@ public class ConfigHandler {
      */
     public static final int ALL_MODE = 8;
     /**
-     * List of all current, loaded configs
+     * Extension of config files. The config directory also holds the classifier models and samples
      */
-    private final List<Config> configs = new ArrayList<>();
-
+    public static final String CONFIG_EXTENSION = ".config";
+    /**
+     * List of all current, loaded configs. Replaced as a whole on reload, so it can be read from any thread
+     */
+    private volatile List<Config> configs = Collections.emptyList();
     /**
-     * Name of the current config
+     * When the configs were last loaded (ms) and how long it took (ns)
      */
-    private String currentConfig;
+    private volatile long lastReloadTime, lastReloadNanos;
 
     /**
-     * Iterates over all files in the app's config directory. Reads the config and adds it to the config list
+     * Iterates over all files in the app's config directory. Reads the config and adds it to the config list,
+     * replacing the configs loaded before
      */
     public void loadConfigs() {
+        final long start = System.nanoTime();
+        final List<Config> loaded = new ArrayList<>();
         try {
             if (!Singleton.INSTANCE.getConfigDir().exists())
                 Singleton.INSTANCE.getConfigDir().mkdir();
             QuickLog.log("Configs", QuickLog.LogType.READING);
-            final Optional<File[]> files = Optional.ofNullable(Singleton.INSTANCE.getConfigDir().listFiles());
+            final Optional<File[]> files = Optional.ofNullable(Singleton.INSTANCE.getConfigDir().listFiles((dir, name) -> name.endsWith(CONFIG_EXTENSION)));
             files.ifPresent(files1 -> {
                 for (final File file : files1) {
                     final Config readConfig = readConfig(FileUtil.getFileContentsAsString(file));
-                    configs.add(readConfig);
+                    loaded.add(readConfig);
                 }
             });
         } catch (final IllegalAccessError e) {
             QuickLog.log("Creating config directory. No configs will be available", QuickLog.LogType.ERROR);
             e.printStackTrace();
         }
+        configs = Collections.unmodifiableList(loaded);
+        lastReloadNanos = System.nanoTime() - start;
+        lastReloadTime = System.currentTimeMillis();
     }
 
     /**
@@ -86,19 +105,21 @@ public class ConfigHandler {
     }
 
     /**
-     * Create a config with points, each one representing one vertex
+     * Create a config with one entry per region, each holding the region's name and its points (one per vertex)
      *
      * @param name config name
      * @return auto created config
      */
     public Config createPointConfig(final String name) {
         final JSONArray struct = new JSONArray();
-        final JSONArray pointsInArray = new JSONArray();
-        for (final Point point : Singleton.INSTANCE.getVertexHandler().getPoints()) {
-            final JSONObject pointObject = new JSONObject().put("x", point.x).put("y", point.y);
-            pointsInArray.put(pointObject);
+        for (final Region region : Singleton.INSTANCE.getVertexHandler().getActiveRegions()) {
+            final JSONArray pointsInArray = new JSONArray();
+            for (final Point point : region.getPoints()) {
+                final JSONObject pointObject = new JSONObject().put("x", point.x).put("y", point.y);
+                pointsInArray.put(pointObject);
+            }
+            struct.put(new JSONObject().put("name", region.getName()).put("points", pointsInArray));
         }
-        struct.put(pointsInArray);
         return createConfig(name, IMAGE_VERTEX_MODE, struct);
     }
 
@@ -110,7 +131,11 @@ public class ConfigHandler {
      */
     public Config createThresholdConfig(final String name) {
         final JSONArray struct = new JSONArray();
-        struct.put(new JSONObject().put("thresh1", Singleton.INSTANCE.getProcessingHandler().getThresholds()[0]).put("thresh2", Singleton.INSTANCE.getProcessingHandler().getThresholds()[1]));
+        final ProcessingParameters parameters = Singleton.INSTANCE.getProcessingHandler().getParameters();
+        struct.put(new JSONObject().put("thresh1", parameters.getThreshold1()).put("thresh2", parameters.getThreshold2())
+                .put("thresholdMode", parameters.getThresholdMode()).put("blur", parameters.getBlurSize()).put("kernel", parameters.getKernelSize()).put("engine", parameters.getEngine())
+                .put("minConfidence", parameters.getMinConfidence())
+                .put("pattern", parameters.getPattern() == null ? "" : parameters.getPattern().pattern()));
         return createConfig(name, IMAGE_THRESHOLD_MODE, struct);
     }
 
@@ -128,59 +153,100 @@ public class ConfigHandler {
     }
 
     /**
-     * Called when a config should be loaded, set current config name & proceed to load as usual
+     * Called when a config should be loaded, set current config name & proceed to load as usual.
+     * The config's name, processing parameters, cascade acceptance and classifier are collected first and applied in one swap,
+     * so no frame is processed or recognized with only part of the config
      *
      * @param config config to be loaded
      */
     public void loadConfig(final Config config) {
-        currentConfig = config.getName();
-        loadConfig0(config);
+        loadConfig(config, true);
+    }
+
+    /**
+     * Load a config, optionally without moving the servos (headless runs only take the rotations over)
+     *
+     * @param config         config to be loaded
+     * @param applyRotations whether to send the config's rotations over serial
+     */
+    public void loadConfig(final Config config, final boolean applyRotations) {
+        final Function<ProcessingParameters, ProcessingParameters> update = loadConfig0(config, Function.identity(), applyRotations);
+        Singleton.INSTANCE.getProcessingHandler().updateParameters(current -> update.apply(current.withProfile(config.getName())));
     }
 
     /**
      * Base method to load a config
-     * Executes code dependent on the config's mode
+     * Executes code dependent on the config's mode. Side effects (servos, vertices) happen right away,
+     * the config's processing parameters are collected into an update applied later in one swap
      *
-     * @param config config to be loaded
+     * @param config         config to be loaded
+     * @param update         update collected so far
+     * @param applyRotations whether to send the config's rotations over serial, otherwise they are only recorded
+     * @return update applying the config's processing parameters as well, free of side effects
      */
-    private void loadConfig0(final Config config) {
+    private Function<ProcessingParameters, ProcessingParameters> loadConfig0(final Config config, Function<ProcessingParameters, ProcessingParameters> update,
+                                                                             final boolean applyRotations) {
         switch (config.getMode()) {
             case SERVO_MODE:
                 for (final Object o : config.getContent()) {
                     final JSONObject jsonObject = new JSONObject(o.toString());
-                    Singleton.INSTANCE.getSerialHandler().changeXAxis(jsonObject.getInt("rotX"));
-                    Singleton.INSTANCE.getSerialHandler().changeYAxis(jsonObject.getInt("rotY"));
+                    if (applyRotations) {
+                        Singleton.INSTANCE.getSerialHandler().changeXAxis(jsonObject.getInt("rotX"));
+                        Singleton.INSTANCE.getSerialHandler().changeYAxis(jsonObject.getInt("rotY"));
+                    } else {
+                        Singleton.INSTANCE.getRotationHandler().setX(jsonObject.getInt("rotX"));
+                        Singleton.INSTANCE.getRotationHandler().setY(jsonObject.getInt("rotY"));
+                    }
                 }
                 break;
             case IMAGE_VERTEX_MODE:
+                /* Entries are either a region object (name & points) or, in older configs, a plain point array */
+                final List<Region> regions = new ArrayList<>();
                 for (final Object content : config.getContent()) {
-                    final JSONArray pointArray = new JSONArray(content.toString());
+                    final String regionName;
+                    final JSONArray pointArray;
+                    if (content instanceof JSONObject) {
+                        regionName = ((JSONObject) content).optString("name", VertexHandler.DEFAULT_REGION_NAME + regions.size());
+                        pointArray = ((JSONObject) content).getJSONArray("points");
+                    } else {
+                        regionName = VertexHandler.DEFAULT_REGION_NAME + regions.size();
+                        pointArray = new JSONArray(content.toString());
+                    }
+                    final List<Point> points = new ArrayList<>(pointArray.length());
                     for (int i = 0; i < pointArray.length(); i++) {
                         final JSONObject pointJson = pointArray.getJSONObject(i);
-                        try {
-                            Singleton.INSTANCE.getVertexHandler().addPoint(i, new Point(pointJson.getDouble("x"), pointJson.getDouble("y")));
-                        } catch (final ArrayIndexOutOfBoundsException outOfBoundsException) {
-                            QuickLog.log("More indices in saved array than possible", QuickLog.LogType.ERROR);
-                        }
+                        points.add(new Point(pointJson.getDouble("x"), pointJson.getDouble("y")));
                     }
+                    if (points.size() >= 3) regions.add(new Region(regionName, points));
                 }
-                Singleton.INSTANCE.getVertexHandler().move();
+                Singleton.INSTANCE.getVertexHandler().setRegions(regions);
+                update = update.andThen(parameters -> parameters.withRegions(regions));
                 break;
             case IMAGE_THRESHOLD_MODE:
                 for (final Object content : config.getContent()) {
                     final JSONObject jsonObject = new JSONObject(content.toString());
-                    Singleton.INSTANCE.getProcessingHandler().setThreshold1(jsonObject.getDouble("thresh1"));
-                    Singleton.INSTANCE.getProcessingHandler().setThreshold2(jsonObject.getDouble("thresh2"));
+                    final double threshold1 = jsonObject.getDouble("thresh1"), threshold2 = jsonObject.getDouble("thresh2");
+                    final ThresholdMode thresholdMode = jsonObject.optEnum(ThresholdMode.class, "thresholdMode", ThresholdMode.STATIC);
+                    final int blur = jsonObject.optInt("blur", 0), kernel = jsonObject.optInt("kernel", ProcessingWorkspace.KERNEL_SIZE);
+                    final EngineType engine = jsonObject.optEnum(EngineType.class, "engine", EngineType.TESSERACT);
+                    final float minConfidence = jsonObject.optFloat("minConfidence", CascadeEngine.DEFAULT_MIN_CONFIDENCE);
+                    final String pattern = jsonObject.optString("pattern", CascadeEngine.NUMBER_PATTERN);
+                    update = update.andThen(parameters -> parameters.withThreshold1(threshold1).withThreshold2(threshold2).withThresholdMode(thresholdMode)
+                            .withBlurSize(blur).withKernelSize(kernel).withEngine(engine).withCascade(minConfidence, pattern));
                 }
+                final KNearest classifier = DigitClassifier.readModel(getModelFile(config.getName()));
+                if (classifier != null) QuickLog.log("Loaded classifier of " + config.getName(), QuickLog.LogType.INFO);
+                update = update.andThen(parameters -> parameters.withClassifier(classifier));
                 break;
             case ALL_MODE:
                 for (final Object content : config.getContent()) {
-                    loadConfig(readConfig(content.toString()));
+                    update = loadConfig0(readConfig(content.toString()), update, applyRotations);
                 }
                 break;
             default:
                 break;
         }
+        return update;
     }
 
     /**
@@ -244,7 +310,7 @@ public class ConfigHandler {
      */
     public void saveConfig(final Config config) {
         QuickLog.log("Config to file", QuickLog.LogType.SAVING);
-        final File configFile = new File(Singleton.INSTANCE.getConfigDir(), UUID.randomUUID().toString() + ".config");
+        final File configFile = new File(Singleton.INSTANCE.getConfigDir(), UUID.randomUUID().toString() + CONFIG_EXTENSION);
         FileUtil.writeStringToFile(configFile, writeConfig(config), false);
         QuickLog.log("Config saved", QuickLog.LogType.INFO);
         loadConfigs();
@@ -281,20 +347,76 @@ public class ConfigHandler {
     }
 
     /**
-     * @return list of all configs
+     * Get the classifier model file of a config, stored in the config directory
+     *
+     * @param name config name, null for configs not saved yet
+     * @return model file
+     */
+    public File getModelFile(final String name) {
+        final File modelDir = new File(Singleton.INSTANCE.getConfigDir(), "models");
+        if (!modelDir.exists()) modelDir.mkdirs();
+        return new File(modelDir, toFileName(name) + ".knn.yml");
+    }
+
+    /**
+     * Get the directory holding the classifier samples of a config
+     *
+     * @param name config name, null for configs not saved yet
+     * @return sample directory
+     */
+    public File getSampleDir(final String name) {
+        final File sampleDir = new File(new File(Singleton.INSTANCE.getConfigDir(), "samples"), toFileName(name));
+        if (!sampleDir.exists()) sampleDir.mkdirs();
+        return sampleDir;
+    }
+
+    /**
+     * Turn a config name into something usable as a file name
+     */
+    private String toFileName(final String name) {
+        return name == null ? "default" : name.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+
+    /**
+     * Find a config by name. If several configs have the name, a config for all modes is preferred
+     *
+     * @param name config name
+     * @return config, empty if there is none with the name
+     */
+    public Optional<Config> findConfig(final String name) {
+        return configs.stream().filter(config -> config.getName().equals(name))
+                .max(Comparator.comparing(config -> config.getMode() == ALL_MODE));
+    }
+
+    /**
+     * @return list of all configs, not modifiable
      */
     public List<Config> getConfigs() {
         return configs;
     }
 
+    /**
+     * @return time the configs were last loaded at (ms)
+     */
+    public long getLastReloadTime() {
+        return lastReloadTime;
+    }
+
+    /**
+     * @return time the last load of the configs took (ns)
+     */
+    public long getLastReloadNanos() {
+        return lastReloadNanos;
+    }
+
     /**
      * @return current loaded config name
      */
     public String getCurrentConfig() {
-        return currentConfig;
+        return Singleton.INSTANCE.getProcessingHandler().getParameters().getProfile();
     }
 
-    public void setCurrentConfig(String currentConfig) {
-        this.currentConfig = currentConfig;
+    public void setCurrentConfig(final String currentConfig) {
+        Singleton.INSTANCE.getProcessingHandler().updateParameters(parameters -> parameters.withProfile(currentConfig));
     }
 }
@@ -9,7 +9,18 @@ package ga.abzzezz.controllers;
 
 import ga.abzzezz.Singleton;
 import ga.abzzezz.config.ConfigHandler;
+import ga.abzzezz.image.ThresholdMode;
+import ga.abzzezz.pipeline.PipelineStats;
+import ga.abzzezz.recognition.EngineType;
+import ga.abzzezz.recognition.RecognitionListener;
+import ga.abzzezz.serial.SerialHandler;
 import ga.abzzezz.util.QuickLog;
+import ga.abzzezz.vertex.Region;
+import ga.abzzezz.vertex.VertexHandler;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -17,6 +28,8 @@ import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.image.ImageView;
@@ -25,8 +38,11 @@ import javafx.scene.layout.AnchorPane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Polygon;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import org.opencv.core.Point;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 public class ConfigCreatorController {
@@ -35,6 +51,10 @@ public class ConfigCreatorController {
      * Polygon with current vertices
      */
     private Polygon polygon;
+    /**
+     * Polygons of all completed regions
+     */
+    private final List<Polygon> regionPolygons = new ArrayList<>();
     /**
      * Variables
      */
@@ -50,6 +70,20 @@ public class ConfigCreatorController {
     private AnchorPane parentPane;
     @FXML
     private TextArea outputField;
+    @FXML
+    private TextField rateField;
+    @FXML
+    private Button streamButton;
+    @FXML
+    private TextField regionNameField;
+    @FXML
+    private ComboBox<EngineType> engineBox;
+    @FXML
+    private ComboBox<ThresholdMode> thresholdModeBox;
+    @FXML
+    private TextField labelField;
+    @FXML
+    private Label statsLabel;
 
     /**
      * Capture started indicator
@@ -59,6 +93,17 @@ public class ConfigCreatorController {
      * Index for the current point to be set
      */
     private int pointIndex;
+    /**
+     * Appends every recognition result to the output field
+     */
+    private final RecognitionListener outputListener = result -> {
+        if (!result.getReading().isEmpty()) Platform.runLater(() -> outputField.appendText(result.getText() + "\n"));
+    };
+    /**
+     * Refreshes the stats overlay twice a second
+     */
+    private final PipelineStats pipelineStats = new PipelineStats();
+    private final Timeline statsTimeline = new Timeline(new KeyFrame(Duration.millis(500), event -> updateStats()));
 
     /**
      * Default jfx initialize method.
@@ -67,21 +112,28 @@ public class ConfigCreatorController {
      */
     @FXML
     public void initialize() {
-        threshold1Field.setText(String.valueOf(Singleton.INSTANCE.getProcessingHandler().getThresholds()[0]));
-        threshold2Field.setText(String.valueOf(Singleton.INSTANCE.getProcessingHandler().getThresholds()[1]));
+        threshold1Field.setText(String.valueOf(Singleton.INSTANCE.getProcessingHandler().getParameters().getThreshold1()));
+        threshold2Field.setText(String.valueOf(Singleton.INSTANCE.getProcessingHandler().getParameters().getThreshold2()));
+        rateField.setText(String.valueOf(Singleton.INSTANCE.getProcessingHandler().getRecognitionRate()));
+        engineBox.getItems().setAll(EngineType.values());
+        engineBox.setValue(Singleton.INSTANCE.getProcessingHandler().getEngine());
+        thresholdModeBox.getItems().setAll(ThresholdMode.values());
+        thresholdModeBox.setValue(Singleton.INSTANCE.getProcessingHandler().getParameters().getThresholdMode());
+        streamButton.setText(Singleton.INSTANCE.getProcessingHandler().isStreaming() ? "Stop stream" : "Stream");
+        Singleton.INSTANCE.getProcessingHandler().addRecognitionListener(outputListener);
+        statsTimeline.setCycleCount(Animation.INDEFINITE);
+        statsTimeline.play();
         /* Create polygon and define attributes */
-        this.polygon = new Polygon();
-        polygon.setFill(Color.TRANSPARENT);
-        polygon.setStroke(Color.GREEN);
-        polygon.setStrokeWidth(4);
-        parentPane.getChildren().add(polygon);
+        this.polygon = createPolygon();
 
         captureView.setOnMouseClicked(mouseEvent -> {
             if (capture) return;
             final double xPos = mouseEvent.getX(), yPos = mouseEvent.getY();
 
+            /* Start a new region, completed ones are kept */
             if (pointIndex == -1) {
-                clearPoints();
+                clearPolygon();
+                Singleton.INSTANCE.getVertexHandler().clearPoints();
                 pointIndex++;
             }
 
@@ -95,22 +147,94 @@ public class ConfigCreatorController {
             }
 
             /*
-             * If first polygon is completed & new ones are selected, delete old polygon
+             * If the polygon is completed, store it as a region. The next click starts a new one
              */
             if (pointIndex >= 4) {
-                Singleton.INSTANCE.getVertexHandler().move();
+                final String name = regionNameField.getText().trim().isEmpty() ? VertexHandler.DEFAULT_REGION_NAME + Singleton.INSTANCE.getVertexHandler().getRegions().size() : regionNameField.getText().trim();
+                Singleton.INSTANCE.getVertexHandler().move(name);
+                addRegionPolygon(Singleton.INSTANCE.getVertexHandler().getPoints());
+                clearPolygon();
+                regionNameField.clear();
                 pointIndex = -1;
-                QuickLog.log("Stored last four points", QuickLog.LogType.INFO);
+                QuickLog.log("Stored last four points as region " + name, QuickLog.LogType.INFO);
             }
         });
     }
 
     /**
-     * Analyse the current Image
+     * Show the stats of the running pipeline and of the serial writes, hide the overlay while nothing runs
+     */
+    private void updateStats() {
+        final StringBuilder text = new StringBuilder();
+        Singleton.INSTANCE.getProcessingHandler().getPipeline().ifPresent(pipeline -> text.append(pipelineStats.describe(pipeline)));
+        final SerialHandler serialHandler = Singleton.INSTANCE.getSerialHandler();
+        if (serialHandler.getWriteLatency().getCount() > 0 || serialHandler.getFailedWrites() > 0) {
+            if (text.length() > 0) text.append('\n');
+            text.append(String.format("%-10s %s  failed %d", "serial", serialHandler.getWriteLatency(), serialHandler.getFailedWrites()));
+        }
+        statsLabel.setText(text.toString());
+        statsLabel.setVisible(text.length() > 0);
+    }
+
+    /**
+     * Analyse all regions of the current Image. The result arrives through the output listener
      */
     @FXML
     public void doAnalyse() {
-        outputField.appendText(Singleton.INSTANCE.getProcessingHandler().doOCR(captureView.getImage()));
+        if (captureView.getImage() == null) return;
+        Singleton.INSTANCE.getProcessingHandler().analyse();
+    }
+
+    /**
+     * Select the engine regions are recognized with
+     */
+    @FXML
+    public void onEngine() {
+        if (engineBox.getValue() != null) Singleton.INSTANCE.getProcessingHandler().setEngine(engineBox.getValue());
+    }
+
+    /**
+     * Select how rois are binarized, static uses the threshold fields
+     */
+    @FXML
+    public void onThresholdMode() {
+        if (thresholdModeBox.getValue() == null) return;
+        Singleton.INSTANCE.getProcessingHandler().setThresholdMode(thresholdModeBox.getValue());
+        if (captureView != null && captureView.getImage() != null)
+            Singleton.INSTANCE.getProcessingHandler().refreshProcessing(captureView);
+    }
+
+    /**
+     * Confirm the reading of the taken image, its cells are stored as samples for the classifier
+     */
+    @FXML
+    public void onConfirm() {
+        if (labelField.getText().trim().isEmpty()) return;
+        Singleton.INSTANCE.getProcessingHandler().confirmReading(labelField.getText());
+        labelField.clear();
+    }
+
+    /**
+     * Train the classifier of the current config from its samples
+     */
+    @FXML
+    public void onTrain() {
+        Singleton.INSTANCE.getProcessingHandler().trainClassifier();
+    }
+
+    /**
+     * Start or stop continuous recognition of the live frames
+     */
+    @FXML
+    public void onStream() {
+        if (Singleton.INSTANCE.getProcessingHandler().isStreaming()) {
+            Singleton.INSTANCE.getProcessingHandler().stopStreaming();
+        } else {
+            Singleton.INSTANCE.getProcessingHandler().startStreaming(Double.parseDouble(rateField.getText()));
+        }
+        engineBox.getItems().setAll(EngineType.values());
+        engineBox.setValue(Singleton.INSTANCE.getProcessingHandler().getEngine());
+        streamButton.setText(Singleton.INSTANCE.getProcessingHandler().isStreaming() ? "Stop stream" : "Stream");
     }
 
     /**
@@ -143,7 +267,6 @@ public class ConfigCreatorController {
      */
     @FXML
     public void saveConfig() {
-        movePolygons(false);
         Singleton.INSTANCE.getConfigHandler().showDialogConfigName().ifPresent(s -> Singleton.INSTANCE.getConfigHandler().saveConfig(Singleton.INSTANCE.getConfigHandler().createAllConfig(s, Singleton.INSTANCE.getRotationHandler().getCurrentRotations())));
     }
 
@@ -155,17 +278,21 @@ public class ConfigCreatorController {
         Singleton.INSTANCE.getConfigHandler().showAvailableConfigs(config -> config.getMode() == ConfigHandler.ALL_MODE).ifPresent(response -> {
             clearPoints();
             Singleton.INSTANCE.getConfigHandler().loadConfig(response);
-            for (final Point point : Singleton.INSTANCE.getVertexHandler().getPoints()) {
-                polygon.getPoints().addAll(point.x, point.y);
+            for (final Region region : Singleton.INSTANCE.getVertexHandler().getRegions()) {
+                addRegionPolygon(region.getPoints());
             }
-            threshold1Field.setText(String.valueOf(Singleton.INSTANCE.getProcessingHandler().getThresholds()[0]));
-            threshold2Field.setText(String.valueOf(Singleton.INSTANCE.getProcessingHandler().getThresholds()[1]));
+            threshold1Field.setText(String.valueOf(Singleton.INSTANCE.getProcessingHandler().getParameters().getThreshold1()));
+            threshold2Field.setText(String.valueOf(Singleton.INSTANCE.getProcessingHandler().getParameters().getThreshold2()));
+            engineBox.setValue(Singleton.INSTANCE.getProcessingHandler().getEngine());
+            thresholdModeBox.setValue(Singleton.INSTANCE.getProcessingHandler().getParameters().getThresholdMode());
         });
     }
 
     @FXML
     public void clearPoints() {
         clearPolygon();
+        parentPane.getChildren().removeAll(regionPolygons);
+        regionPolygons.clear();
         Singleton.INSTANCE.getVertexHandler().clear();
         pointIndex = -1;
     }
@@ -175,6 +302,8 @@ public class ConfigCreatorController {
      */
     @FXML
     public void onBack(final ActionEvent event) {
+        Singleton.INSTANCE.getProcessingHandler().removeRecognitionListener(outputListener);
+        statsTimeline.stop();
         try {
             final Parent configs = FXMLLoader.load(getClass().getResource("/main.fxml"));
             final Scene scene = new Scene(configs);
@@ -200,15 +329,30 @@ public class ConfigCreatorController {
     }
 
     /**
-     * Moves all current polygon points to the vertex handler
+     * Create a polygon, define its attributes and add it to the pane
+     *
+     * @return polygon
+     */
+    private Polygon createPolygon() {
+        final Polygon created = new Polygon();
+        created.setFill(Color.TRANSPARENT);
+        created.setStroke(Color.GREEN);
+        created.setStrokeWidth(4);
+        parentPane.getChildren().add(created);
+        return created;
+    }
+
+    /**
+     * Draw a completed region
      *
-     * @param deleteOld should old points be deleted?
+     * @param points region points
      */
-    private void movePolygons(final boolean deleteOld) {
-        if (deleteOld) clearPoints();
-        for (int i = 1; i < polygon.getPoints().size(); i += 2) {
-            Singleton.INSTANCE.getVertexHandler().addPoint(i / 2, new Point(polygon.getPoints().get(i - 1), polygon.getPoints().get(i)));
+    private void addRegionPolygon(final List<Point> points) {
+        final Polygon regionPolygon = createPolygon();
+        for (final Point point : points) {
+            regionPolygon.getPoints().addAll(point.x, point.y);
         }
+        regionPolygons.add(regionPolygon);
     }
 
 
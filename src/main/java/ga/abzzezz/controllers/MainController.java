@@ -50,6 +50,8 @@ public class MainController {
     private CheckBox logResultsToFile;
     @FXML
     private TextField camIndexField;
+    @FXML
+    private CheckBox recordFrames;
 
 
     /**
@@ -151,6 +153,16 @@ public class MainController {
         Singleton.INSTANCE.getProcessingHandler().setCamIndex(Integer.parseInt(camIndexField.getText()));
     }
 
+    /**
+     * Start or stop recording the grabbed frames for replay
+     */
+    @FXML
+    public void onRecordFrames() {
+        if (recordFrames.isSelected())
+            recordFrames.setSelected(Singleton.INSTANCE.getProcessingHandler().startRecording().isPresent());
+        else Singleton.INSTANCE.getProcessingHandler().stopRecording();
+    }
+
     @FXML
     public void openLogs() {
         try {
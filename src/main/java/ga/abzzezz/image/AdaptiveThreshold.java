@@ -0,0 +1,179 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.image;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.Arrays;
+
+/**
+ * Binarizes a grayscale image with thresholds picked from its own histogram, for the {@link ThresholdMode#OTSU}
+ * and {@link ThresholdMode#TILED} modes. Histograms are kept per tile across frames and updated incrementally
+ * (see {@link IncrementalHistogram}). If the image (or a tile and the whole image) has no contrast,
+ * the static threshold of the parameters is used. Images unrelated to the ones before (batch images, stills)
+ * are binarized independently: every tile is resampled and its threshold picked again.
+ * Owned by a workspace, so it must only be used by one thread at a time.
+ */
+public class AdaptiveThreshold {
+    /**
+     * Edge length tiles aim for, in pixels
+     */
+    public static final int TILE_SIZE = 64;
+
+    private IncrementalHistogram[] tiles = new IncrementalHistogram[0];
+    private Rect[] tileRects = new Rect[0];
+    /**
+     * First column of every tile column (plus the width), tile row of every image row
+     */
+    private int[] columnStarts = new int[0], rowTiles = new int[0];
+    /**
+     * Reused buffer for one image row, and the stripe sampled next (-1 to sample all)
+     */
+    private byte[] row = new byte[0];
+    private int nextStripe = -1;
+    /**
+     * Headers viewing the tiles, only rebuilt if the layout or the image buffer changed
+     */
+    private Mat[] tileViews = new Mat[0];
+    private long viewsAddress;
+    private int width = -1, height = -1, columns, rows;
+    /**
+     * Counts of all tiles and the threshold picked from them
+     */
+    private final int[] counts = new int[256];
+    private int wholeThreshold = -1;
+
+    /**
+     * Binarize an image in place
+     *
+     * @param gray        continuous single channel 8 bit image
+     * @param parameters  mode, static threshold (fallback) and max value
+     * @param independent true if the image is not the next frame of a stream: the histograms of earlier images are not reused
+     */
+    public void apply(final Mat gray, final ProcessingParameters parameters, final boolean independent) {
+        final boolean tiled = parameters.getThresholdMode() == ThresholdMode.TILED;
+        layout(gray, tiled);
+        if (independent || nextStripe < 0) {
+            for (int stripe = 0; stripe < IncrementalHistogram.STRIPES; stripe++) sample(gray, stripe);
+            nextStripe = 0;
+        } else {
+            sample(gray, nextStripe);
+            nextStripe = (nextStripe + 1) % IncrementalHistogram.STRIPES;
+        }
+
+        boolean changed = false;
+        for (final IncrementalHistogram tile : tiles) {
+            if (independent || tile.isDrifted()) {
+                tile.pick();
+                changed = true;
+            }
+        }
+        if (changed) {
+            Arrays.fill(counts, 0);
+            for (final IncrementalHistogram tile : tiles) tile.addTo(counts);
+            wholeThreshold = tiles.length == 1 ? tiles[0].getThreshold() : IncrementalHistogram.otsu(counts);
+        }
+
+        final double whole = wholeThreshold < 0 ? parameters.getThreshold1() : wholeThreshold;
+        if (!tiled) {
+            Imgproc.threshold(gray, gray, whole, parameters.getThreshold2(), Imgproc.THRESH_BINARY);
+            return;
+        }
+        updateViews(gray);
+        for (int i = 0; i < tiles.length; i++) {
+            final int threshold = tiles[i].getThreshold();
+            Imgproc.threshold(tileViews[i], tileViews[i], threshold < 0 ? whole : threshold, parameters.getThreshold2(), Imgproc.THRESH_BINARY);
+        }
+    }
+
+    /**
+     * Sample one stripe of rows into the tiles' histograms. Every row is read once for all tile columns
+     *
+     * @param gray   image
+     * @param stripe stripe index
+     */
+    private void sample(final Mat gray, final int stripe) {
+        for (final IncrementalHistogram tile : tiles) tile.begin();
+        for (int y = stripe; y < height; y += IncrementalHistogram.STRIPES) {
+            gray.get(y, 0, row);
+            final int first = rowTiles[y] * columns;
+            for (int column = 0; column < columns; column++) tiles[first + column].add(row, columnStarts[column], columnStarts[column + 1]);
+        }
+        for (final IncrementalHistogram tile : tiles) tile.end(stripe);
+    }
+
+    /**
+     * Split the image into tiles of about {@link #TILE_SIZE}, or one tile if not tiled. Only redone if the size or mode changed
+     */
+    private void layout(final Mat gray, final boolean tiled) {
+        final int newColumns = tiled ? Math.max(1, Math.round(gray.width() / (float) TILE_SIZE)) : 1;
+        final int newRows = tiled ? Math.max(1, Math.round(gray.height() / (float) TILE_SIZE)) : 1;
+        if (gray.width() == width && gray.height() == height && newColumns == columns && newRows == rows) return;
+        width = gray.width();
+        height = gray.height();
+        columns = newColumns;
+        rows = newRows;
+        releaseViews();
+
+        tiles = new IncrementalHistogram[columns * rows];
+        tileRects = new Rect[columns * rows];
+        tileViews = new Mat[columns * rows];
+        columnStarts = new int[columns + 1];
+        rowTiles = new int[height];
+        row = new byte[width];
+        for (int column = 0; column <= columns; column++) columnStarts[column] = column * width / columns;
+        for (int tileRow = 0; tileRow < rows; tileRow++) {
+            final int y0 = tileRow * height / rows, y1 = (tileRow + 1) * height / rows;
+            Arrays.fill(rowTiles, y0, y1, tileRow);
+            for (int column = 0; column < columns; column++) {
+                final int index = tileRow * columns + column;
+                tiles[index] = new IncrementalHistogram();
+                tileRects[index] = new Rect(columnStarts[column], y0, columnStarts[column + 1] - columnStarts[column], y1 - y0);
+            }
+        }
+        nextStripe = -1;
+        wholeThreshold = -1;
+    }
+
+    /**
+     * Create the tile headers if the image was reallocated
+     */
+    private void updateViews(final Mat gray) {
+        if (tileViews.length > 0 && tileViews[0] != null && viewsAddress == gray.dataAddr()) return;
+        releaseViews();
+        for (int i = 0; i < tileViews.length; i++) tileViews[i] = new Mat(gray, tileRects[i]);
+        viewsAddress = gray.dataAddr();
+    }
+
+    private void releaseViews() {
+        for (int i = 0; i < tileViews.length; i++) {
+            if (tileViews[i] != null) tileViews[i].release();
+            tileViews[i] = null;
+        }
+        viewsAddress = 0;
+    }
+
+    /**
+     * @return threshold picked for the whole image, -1 if it had no contrast
+     */
+    public int getWholeThreshold() {
+        return wholeThreshold;
+    }
+
+    /**
+     * Release the tile headers and drop all histograms
+     */
+    public void release() {
+        releaseViews();
+        width = height = -1;
+        columns = rows = 0;
+        tiles = new IncrementalHistogram[0];
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.image;
+
+import ga.abzzezz.vertex.Region;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Processes all regions of a frame, one workspace per region.
+ * Each region is rectified (quadrilaterals) or cropped to its bounds and filtered once; the results stay valid until the next call.
+ * A processor must only be used by one thread at a time.
+ */
+public class FrameProcessor {
+    /**
+     * Name of the single region used if no region is defined (the whole frame)
+     */
+    public static final String FRAME_REGION_NAME = "frame";
+
+    private final List<ProcessingWorkspace> workspaces = new ArrayList<>();
+    /**
+     * Results of the last call, one per region
+     */
+    private final List<Mat> results = new ArrayList<>();
+    /**
+     * Bounds of the regions in frame coordinates, null entries for the whole frame
+     */
+    private final List<Rect> resultRects = new ArrayList<>();
+    /**
+     * Names of the results, only rebuilt if the regions changed
+     */
+    private List<String> resultNames = new ArrayList<>();
+
+    /**
+     * Process the next frame of a stream. If there are no regions, the whole frame is processed as one.
+     * The adaptive thresholds build on the frames processed before
+     *
+     * @param src        source frame (BGR)
+     * @param parameters regions, thresholds and kernel size to process with
+     * @return number of results
+     */
+    public int process(final Mat src, final ProcessingParameters parameters) {
+        return process(src, parameters, false);
+    }
+
+    /**
+     * Process every region of a frame. If there are no regions, the whole frame is processed as one
+     *
+     * @param src         source frame (BGR)
+     * @param parameters  regions, thresholds and kernel size to process with
+     * @param independent true if the frame is unrelated to the ones processed before (batch images, stills):
+     *                    the adaptive thresholds then only depend on this frame
+     * @return number of results
+     */
+    public int process(final Mat src, final ProcessingParameters parameters, final boolean independent) {
+        final List<Region> regions = parameters.getRegions();
+        results.clear();
+        final int count = Math.max(1, regions.size());
+        while (workspaces.size() < count) {
+            workspaces.add(new ProcessingWorkspace());
+            resultRects.add(new Rect());
+        }
+
+        for (int i = 0; i < count; i++) {
+            final ProcessingWorkspace workspace = workspaces.get(i);
+            final int[] bounds = workspace.getBounds();
+            final Region region = i < regions.size() ? regions.get(i) : null;
+            final boolean cropped = region != null && region.getBounds(bounds);
+            if (cropped && region.isQuadrilateral()) results.add(workspace.rectify(src, parameters, region, independent));
+            else results.add(workspace.process(src, parameters, cropped ? bounds : null, independent));
+            setRect(resultRects.get(i), cropped ? bounds : null, src);
+        }
+        updateResultNames(regions);
+        return count;
+    }
+
+    /**
+     * Draw the last results into a grayscale copy of the frame, so the preview keeps the frame's coordinates.
+     * Rectified regions are scaled into their bounding rectangle
+     *
+     * @param src     frame the results were processed from
+     * @param preview mat to render into
+     */
+    public void renderPreview(final Mat src, final Mat preview) {
+        if (results.size() == 1 && results.get(0).width() == src.width() && results.get(0).height() == src.height()) {
+            results.get(0).copyTo(preview);
+            return;
+        }
+
+        Imgproc.cvtColor(src, preview, Imgproc.COLOR_BGR2GRAY);
+        for (int i = 0; i < results.size(); i++) {
+            final Rect rect = resultRects.get(i);
+            final Mat result = results.get(i);
+            if (rect.width == 0 || rect.height == 0) continue;
+            final Mat target = preview.submat(rect);
+            if (rect.width == result.width() && rect.height == result.height()) result.copyTo(target);
+            else Imgproc.resize(result, target, target.size(), 0, 0, Imgproc.INTER_NEAREST);
+            target.release();
+        }
+    }
+
+    /**
+     * @param index region index
+     * @return processed region of the last call
+     */
+    public Mat getResult(final int index) {
+        return results.get(index);
+    }
+
+    public int getResultCount() {
+        return results.size();
+    }
+
+    /**
+     * @return names of the last results, the list is replaced (not modified) when the regions change
+     */
+    public List<String> getResultNames() {
+        return resultNames;
+    }
+
+    /**
+     * Rebuild the result names if they differ from the regions
+     */
+    private void updateResultNames(final List<Region> regions) {
+        boolean changed = resultNames.size() != Math.max(1, regions.size()) || regions.isEmpty() && !resultNames.get(0).equals(FRAME_REGION_NAME);
+        for (int i = 0; !changed && i < regions.size(); i++) changed = !resultNames.get(i).equals(regions.get(i).getName());
+        if (changed) resultNames = getResultNames(regions);
+    }
+
+    /**
+     * Clamp bounds to the frame and store them in a rect
+     */
+    private void setRect(final Rect rect, final int[] bounds, final Mat src) {
+        if (bounds == null) {
+            rect.x = rect.y = 0;
+            rect.width = src.width();
+            rect.height = src.height();
+            return;
+        }
+        rect.x = Math.max(0, bounds[0]);
+        rect.y = Math.max(0, bounds[1]);
+        rect.width = Math.max(0, Math.min(src.width(), bounds[0] + bounds[2]) - rect.x);
+        rect.height = Math.max(0, Math.min(src.height(), bounds[1] + bounds[3]) - rect.y);
+    }
+
+    /**
+     * Release all native memory held by the processor
+     */
+    public void release() {
+        for (final ProcessingWorkspace workspace : workspaces) workspace.release();
+        results.clear();
+    }
+
+    /**
+     * Names for the results of a region list
+     *
+     * @param regions regions
+     * @return one name per result
+     */
+    public static List<String> getResultNames(final List<Region> regions) {
+        final List<String> names = new ArrayList<>(Math.max(1, regions.size()));
+        if (regions.isEmpty()) names.add(FRAME_REGION_NAME);
+        for (final Region region : regions) names.add(region.getName());
+        return Collections.unmodifiableList(names);
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.image;
+
+import java.util.Arrays;
+
+/**
+ * Gray level histogram of a rectangle of a frame, kept up to date incrementally.
+ * The frame's rows are split into interleaved stripes (every n-th row) and only one stripe is sampled per frame,
+ * replacing that stripe's counts from n frames ago; columns are sampled sparsely as well.
+ * The threshold is only picked again once enough samples moved to other gray levels since it was last picked,
+ * so a steady image costs a fraction of a pass over its pixels and no threshold search at all.
+ * A histogram must only be used by one thread at a time.
+ */
+public class IncrementalHistogram {
+    /**
+     * Number of row stripes, one is sampled per frame
+     */
+    public static final int STRIPES = 8;
+    /**
+     * Every n-th column of a row is sampled
+     */
+    public static final int COLUMN_STEP = 4;
+    /**
+     * Share of the samples that has to move to other gray levels before the threshold is picked again
+     */
+    public static final float REUSE_TOLERANCE = 0.05F;
+    /**
+     * Smallest difference between the mean gray levels of the two classes for the rectangle to have any contrast
+     */
+    public static final int MIN_CONTRAST = 24;
+    /**
+     * Smallest share of the variance explained by splitting into two classes. An even gradient has 0.75,
+     * two clean classes (ink and background) come close to 1
+     */
+    public static final double MIN_SEPARABILITY = 0.85;
+
+    private final int[][] stripes = new int[STRIPES][256];
+    private final int[] total = new int[256], fresh = new int[256];
+    private int samples, drift;
+    /**
+     * Last picked threshold, -1 if the rectangle had no contrast
+     */
+    private int threshold = -1;
+    private boolean picked;
+
+    /**
+     * Start sampling a stripe
+     */
+    public void begin() {
+        Arrays.fill(fresh, 0);
+    }
+
+    /**
+     * Sample part of a row of the current stripe
+     *
+     * @param row  gray levels of the row
+     * @param from first column of the rectangle
+     * @param to   column after the rectangle
+     */
+    public void add(final byte[] row, final int from, final int to) {
+        for (int column = from; column < to; column += COLUMN_STEP) fresh[row[column] & 0xFF]++;
+    }
+
+    /**
+     * Replace the counts of a stripe with the ones sampled since {@link #begin()}
+     *
+     * @param stripe stripe index
+     */
+    public void end(final int stripe) {
+        final int[] old = stripes[stripe];
+        int moved = 0;
+        for (int level = 0; level < 256; level++) {
+            final int difference = fresh[level] - old[level];
+            if (difference == 0) continue;
+            moved += Math.abs(difference);
+            total[level] += difference;
+            samples += difference;
+            old[level] = fresh[level];
+        }
+        drift += moved / 2;
+    }
+
+    /**
+     * @return true if the threshold was never picked or enough samples moved since
+     */
+    public boolean isDrifted() {
+        return !picked || drift > samples * REUSE_TOLERANCE;
+    }
+
+    /**
+     * Pick the threshold from the current counts and reset the drift
+     *
+     * @return threshold, -1 if the rectangle has no contrast
+     */
+    public int pick() {
+        picked = true;
+        drift = 0;
+        threshold = otsu(total);
+        return threshold;
+    }
+
+    /**
+     * Find the threshold maximizing the variance between the two classes (Otsu)
+     *
+     * @param counts 256 gray level counts
+     * @return threshold (the last level of the dark class), -1 if the classes differ by less than {@link #MIN_CONTRAST}
+     * or do not separate the gray levels well enough ({@link #MIN_SEPARABILITY})
+     */
+    public static int otsu(final int[] counts) {
+        long samples = 0, sum = 0;
+        double squares = 0;
+        for (int level = 0; level < 256; level++) {
+            samples += counts[level];
+            sum += (long) level * counts[level];
+            squares += (double) level * level * counts[level];
+        }
+        if (samples == 0) return -1;
+
+        long below = 0, sumBelow = 0;
+        double bestVariance = -1, bestContrast = 0;
+        int best = -1;
+        for (int level = 0; level < 255; level++) {
+            below += counts[level];
+            if (below == 0) continue;
+            final long above = samples - below;
+            if (above == 0) break;
+            sumBelow += (long) level * counts[level];
+            final double meanBelow = sumBelow / (double) below, meanAbove = (sum - sumBelow) / (double) above;
+            final double variance = (double) below * above * (meanAbove - meanBelow) * (meanAbove - meanBelow);
+            if (variance > bestVariance) {
+                bestVariance = variance;
+                bestContrast = meanAbove - meanBelow;
+                best = level;
+            }
+        }
+        /* Between-class variance over the total variance, both scaled by samples squared */
+        final double totalVariance = squares * samples - (double) sum * sum;
+        if (bestContrast < MIN_CONTRAST || totalVariance <= 0 || bestVariance / totalVariance < MIN_SEPARABILITY) return -1;
+        return best;
+    }
+
+    /**
+     * @return last picked threshold, -1 if the rectangle had no contrast
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Add the counts to another histogram's counts
+     *
+     * @param counts 256 counts to add to
+     */
+    public void addTo(final int[] counts) {
+        for (int level = 0; level < 256; level++) counts[level] += total[level];
+    }
+}
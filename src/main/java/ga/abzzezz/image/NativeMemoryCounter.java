@@ -0,0 +1,68 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.image;
+
+import org.opencv.core.Mat;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts native mat allocations done by the processing code.
+ * A mat is tracked by remembering its data pointer; whenever the pointer changes OpenCV allocated a new buffer for it.
+ * In a steady state (same frame geometry, same parameters) the counters should not move.
+ */
+public class NativeMemoryCounter {
+    /**
+     * Number of native buffers allocated
+     */
+    private static final LongAdder allocations = new LongAdder();
+    /**
+     * Total bytes of all native buffers allocated
+     */
+    private static final LongAdder allocatedBytes = new LongAdder();
+
+    /**
+     * Check a mat after an operation wrote to it. Counts an allocation if its data pointer changed
+     *
+     * @param mat             mat to check
+     * @param previousAddress data address recorded for the mat last time
+     * @return the mat's current data address, to be passed in next time
+     */
+    public static long track(final Mat mat, final long previousAddress) {
+        final long address = mat.dataAddr();
+        if (address != previousAddress && address != 0) {
+            allocations.increment();
+            allocatedBytes.add(mat.total() * mat.elemSize());
+        }
+        return address;
+    }
+
+    /**
+     * Record an allocation done explicitly (kernels, headers etc.)
+     *
+     * @param mat allocated mat
+     */
+    public static void record(final Mat mat) {
+        allocations.increment();
+        allocatedBytes.add(mat.total() * mat.elemSize());
+    }
+
+    /**
+     * @return number of native allocations so far
+     */
+    public static long getAllocations() {
+        return allocations.sum();
+    }
+
+    /**
+     * @return bytes allocated natively so far
+     */
+    public static long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+}
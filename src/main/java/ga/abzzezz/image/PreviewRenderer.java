@@ -0,0 +1,167 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.image;
+
+import javafx.application.Platform;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.util.Callback;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Displays processed mats in an image view without encoding them.
+ * The image is backed by a pixel buffer whose memory is shared with a mat, so a frame is converted once and copied straight into it.
+ * Buffers are only reallocated when the frame geometry changes.
+ */
+public class PreviewRenderer {
+    /**
+     * Image view to display the frames in
+     */
+    private final ImageView imageView;
+    /**
+     * Converted frame waiting to be copied into the pixel buffer
+     */
+    private final Mat staging = new Mat();
+    private long stagingAddress;
+    /**
+     * Set while a frame is waiting for the fx thread. Frames presented in the meantime replace the newest dropped frame,
+     * which is presented once the pending one is displayed (so a single still image refresh is never lost)
+     */
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private final Mat latest = new Mat();
+    private long latestAddress;
+    private volatile boolean hasLatest;
+    /**
+     * Reused tasks, so presenting a frame does not allocate
+     */
+    private final Runnable flushTask = this::flush;
+    private final Callback<PixelBuffer<ByteBuffer>, Rectangle2D> copyTask = this::copy;
+    /**
+     * Pixel buffer, the image backed by it and a mat header over the same memory
+     */
+    private PixelBuffer<ByteBuffer> pixelBuffer;
+    private WritableImage image;
+    private Mat bufferMat;
+
+    public PreviewRenderer(final ImageView imageView) {
+        this.imageView = imageView;
+    }
+
+    /**
+     * Present a mat. Converts it to BGRA on the calling thread and hands it to the fx thread.
+     * If the previous frame has not been displayed yet, the mat is kept as the newest dropped frame instead
+     *
+     * @param mat gray, BGR or BGRA mat to display
+     * @return true if the frame was handed to the fx thread right away
+     */
+    public boolean present(final Mat mat) {
+        if (mat.empty()) return false;
+        if (pending.compareAndSet(false, true)) {
+            convert(mat, staging);
+            stagingAddress = NativeMemoryCounter.track(staging, stagingAddress);
+            Platform.runLater(flushTask);
+            return true;
+        }
+        synchronized (latest) {
+            convert(mat, latest);
+            latestAddress = NativeMemoryCounter.track(latest, latestAddress);
+            hasLatest = true;
+        }
+        /* The pending frame may have been displayed in the meantime */
+        presentLatest();
+        return false;
+    }
+
+    /**
+     * Hand the newest dropped frame to the fx thread, unless a frame is pending (its flush presents the dropped frame)
+     */
+    private void presentLatest() {
+        while (hasLatest && pending.compareAndSet(false, true)) {
+            synchronized (latest) {
+                if (hasLatest) {
+                    hasLatest = false;
+                    latest.copyTo(staging);
+                    stagingAddress = NativeMemoryCounter.track(staging, stagingAddress);
+                    Platform.runLater(flushTask);
+                    return;
+                }
+            }
+            pending.set(false);
+        }
+    }
+
+    private static void convert(final Mat mat, final Mat dst) {
+        switch (mat.channels()) {
+            case 1:
+                Imgproc.cvtColor(mat, dst, Imgproc.COLOR_GRAY2BGRA);
+                break;
+            case 3:
+                Imgproc.cvtColor(mat, dst, Imgproc.COLOR_BGR2BGRA);
+                break;
+            default:
+                mat.copyTo(dst);
+                break;
+        }
+    }
+
+    /**
+     * Runs on the fx thread. Swaps the image if the geometry changed, then updates the buffer
+     */
+    private void flush() {
+        try {
+            if (pixelBuffer == null || pixelBuffer.getWidth() != staging.width() || pixelBuffer.getHeight() != staging.height())
+                allocate(staging.width(), staging.height());
+
+            pixelBuffer.updateBuffer(copyTask);
+            if (imageView.getImage() != image) imageView.setImage(image);
+        } finally {
+            pending.set(false);
+            presentLatest();
+        }
+    }
+
+    /**
+     * Copy the staged frame into the pixel buffer's memory
+     *
+     * @param buffer buffer being updated
+     * @return dirty region, null for the whole buffer
+     */
+    private Rectangle2D copy(final PixelBuffer<ByteBuffer> buffer) {
+        staging.copyTo(bufferMat);
+        return null;
+    }
+
+    /**
+     * Allocate a direct buffer, a pixel buffer and a mat header sharing its memory
+     *
+     * @param width  frame width
+     * @param height frame height
+     */
+    private void allocate(final int width, final int height) {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(width * height * 4);
+        if (bufferMat != null) bufferMat.release();
+        bufferMat = new Mat(height, width, CvType.CV_8UC4, buffer);
+        pixelBuffer = new PixelBuffer<>(width, height, buffer, PixelFormat.getByteBgraPreInstance());
+        image = new WritableImage(pixelBuffer);
+    }
+
+    /**
+     * @return image view frames are rendered to
+     */
+    public ImageView getImageView() {
+        return imageView;
+    }
+}
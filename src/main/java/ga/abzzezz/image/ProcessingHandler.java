@@ -8,115 +8,187 @@
 package ga.abzzezz.image;
 
 import ga.abzzezz.Singleton;
+import ga.abzzezz.pipeline.Frame;
+import ga.abzzezz.pipeline.FrameSnapshot;
+import ga.abzzezz.pipeline.OverflowPolicy;
+import ga.abzzezz.pipeline.Pipeline;
+import ga.abzzezz.pipeline.Stage;
+import ga.abzzezz.recognition.*;
+import ga.abzzezz.source.CameraSource;
+import ga.abzzezz.source.FrameRecorder;
+import ga.abzzezz.source.FrameSource;
+import ga.abzzezz.source.RawFrameFormat;
 import ga.abzzezz.util.*;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
-import net.sourceforge.tess4j.Tesseract;
-import net.sourceforge.tess4j.TesseractException;
-import org.json.JSONObject;
-import org.opencv.core.Point;
+import javafx.scene.image.PixelFormat;
 import org.opencv.core.*;
-import org.opencv.imgcodecs.Imgcodecs;
 import org.opencv.imgproc.Imgproc;
-import org.opencv.videoio.VideoCapture;
+import org.opencv.ml.KNearest;
 
-import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferByte;
-import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 /**
  * Class to process camera data and do image processing
  */
 public class ProcessingHandler {
     /**
-     * Video capture for the webcam
+     * Creates the source frames are read from, the camera unless set otherwise
      **/
-    private final VideoCapture videoCapture = new VideoCapture();
+    private volatile Supplier<FrameSource> sourceFactory = this::createCameraSource;
     /**
-     * Tesseract instance for the trained image recognition
+     * Source the running pipeline reads from, null if not capturing
+     */
+    private volatile FrameSource frameSource;
+    /**
+     * Recorder for grabbed frames, null if not recording
+     */
+    private volatile FrameRecorder recorder;
+    /**
+     * Space preallocated for a recording (bytes)
+     */
+    private long recordingCapacity = 1L << 30;
+    /**
+     * Pool of tesseract instances for the trained image recognition, created on first use
      **/
-    private final Tesseract tesseract = new Tesseract();
+    private volatile TesseractPool tesseractPool;
+    /**
+     * Number of tesseract instances, defaults to one per core
+     */
+    private int tesseractInstances = Runtime.getRuntime().availableProcessors();
+    /**
+     * Recognition engines: tesseract, the seven-segment decoder, the trained classifier and a cascade of decoder and tesseract
+     */
+    private final TesseractEngine tesseractEngine = new TesseractEngine(this::getTesseractPool);
+    private final SevenSegmentDecoder sevenSegmentEngine = new SevenSegmentDecoder();
+    private final DigitClassifier digitClassifier = new DigitClassifier();
+    private final CascadeEngine cascadeEngine = new CascadeEngine(Arrays.asList(sevenSegmentEngine, tesseractEngine), CascadeEngine.DEFAULT_MIN_CONFIDENCE, CascadeEngine.NUMBER_PATTERN);
     /**
-     * mat for the current received image
+     * Statistics of the selected engines, recorded for every roi not answered from the cache
+     */
+    private final SampleWriter sampleWriter = new SampleWriter();
+    private final Map<EngineType, EngineStats> engineStats = new EnumMap<>(EngineType.class);
+    /**
+     * Thresholds, regions, kernel size and engine frames are processed with. Replaced as a whole on every change
+     */
+    private final AtomicReference<ProcessingParameters> parameters = new AtomicReference<>(ProcessingParameters.DEFAULT);
+    /**
+     * mat for the current taken image
      **/
-    private final Mat videoMat = new Mat(), imageMap = new Mat();
+    private final Mat imageMap = new Mat();
+    /**
+     * Processors for the capture thread and for still images (taken images and refreshes)
+     */
+    private final FrameProcessor captureProcessor = new FrameProcessor(), stillProcessor = new FrameProcessor();
+    /**
+     * Preview of the current still image
+     */
+    private final Mat stillPreview = new Mat();
     /**
      * Service for video thread
      **/
     private final ExecutorService executorService = Executors.newSingleThreadExecutor();
     /**
-     * Custom thresholds
+     * Capacity and overflow policy of the pipeline's stage queues
      */
-    private final double[] thresholds = new double[2];
+    private int queueCapacity = 2;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
     /**
-     * Image encoding
+     * Running capture pipeline, null if not capturing
      */
-    private final String imgEncode = ".png";
+    private volatile Pipeline pipeline;
+    /**
+     * Target recognitions per second while streaming, 0 for every frame
+     */
+    private volatile double recognitionRate = 2;
+    /**
+     * Listeners receiving every recognition result
+     */
+    private final List<RecognitionListener> listeners = new CopyOnWriteArrayList<>();
+    /**
+     * Skip recognition of regions that did not change, one gate per region name
+     */
+    private final Map<String, ChangeGate> changeGates = new ConcurrentHashMap<>();
+    /**
+     * Fraction of pixels that may differ for a region to count as unchanged
+     */
+    private double changeTolerance = 0.01;
+    /**
+     * Temporal consensus over the streamed readings, one vote per region name
+     */
+    private final Map<String, TemporalVote> temporalVotes = new ConcurrentHashMap<>();
+    /**
+     * Readings voting, votes a reading needs to be emitted and the largest sampling stride once stable (1 to recognize every frame)
+     */
+    private int voteWindow = 5, voteQuorum = 3, maxSampleStride = 4;
+    /**
+     * Recognizes the regions of a frame in parallel, created on first use
+     */
+    private volatile ExecutorService regionExecutor;
+    /**
+     * Readings of previously seen rois
+     */
+    private final RecognitionCache recognitionCache = new RecognitionCache(256, 600);
+    /**
+     * Renderer for the image view currently displaying frames
+     */
+    private PreviewRenderer previewRenderer;
     /**
      * Camera index (integrated webcam usually no. 0)
      */
     private int camIndex = 1;
 
     public ProcessingHandler() {
-        QuickLog.log("Loading tesseract", QuickLog.LogType.INFO);
-        tesseract.setDatapath("resources/tessdata");
-        tesseract.setLanguage("ssd");
-        //tesseract.setTessVariable("user_defined_dpi", "500");
-        QuickLog.log("Done loading tesseract", QuickLog.LogType.INFO);
+        addRecognitionListener(new FileResultLogger());
+        for (final EngineType type : EngineType.values()) engineStats.put(type, new EngineStats(getRecognitionEngine(type).getName()));
     }
 
     /**
-     * Start the video capture, run thread and process image.
+     * Start the video capture and the processing pipeline.
+     * Grabbing, processing, recognition and displaying each run on their own thread.
      *
      * @param imageView imageView to later display image
      */
     public void start(final ImageView imageView) {
         QuickLog.log("Starting video capture", QuickLog.LogType.INFO);
-        videoCapture.open(camIndex);
-        executorService.submit(new Thread(() -> {
-            while (videoCapture.isOpened() && videoCapture.read(videoMat)) {
-                final MatOfByte processedByteMat = new MatOfByte();
-                final Mat copyMat = doProcessing(videoMat);
-
-                Imgcodecs.imencode(imgEncode, copyMat, processedByteMat);
-
-                final byte[] bytes = processedByteMat.toArray();
-                imageView.setImage(new Image(new ByteArrayInputStream(bytes)));
-
-                processedByteMat.release();
-                copyMat.release();
-                videoMat.release();
-            }
-        }));
+        final PreviewRenderer renderer = getRenderer(imageView);
+        final boolean streaming = isStreaming();
+        stopPipeline();
+        if (!openSource()) return;
+        pipeline = createPipeline(renderer::present);
+        pipeline.setRecognitionEnabled(streaming);
+        pipeline.start();
     }
 
     /**
-     * Take a image with the current cam
+     * Take a image with the current cam (or the first frame of the current source)
      *
      * @param imageView imageView to later display image
      */
     public void takeImage(final ImageView imageView) {
         stop();
         QuickLog.log("Taking image", QuickLog.LogType.INFO);
-        videoCapture.open(camIndex);
         executorService.submit(new Thread(() -> {
-            videoCapture.read(imageMap);
-            final MatOfByte processedByteMat = new MatOfByte();
-            final Mat copyMat = doProcessing(imageMap);
-
-            Imgcodecs.imencode(imgEncode, copyMat, processedByteMat);
-            imageView.setImage(new Image(new ByteArrayInputStream(processedByteMat.toArray())));
-
-            processedByteMat.release();
-            copyMat.release();
-            stop();
+            final FrameSource source = sourceFactory.get();
+            final boolean read = source.isOpened() && source.read(imageMap);
+            source.close();
+            if (read) getRenderer(imageView).present(processStill());
+            else QuickLog.log("Could not read from " + source.getName(), QuickLog.LogType.ERROR);
         }));
     }
 
@@ -126,102 +198,510 @@ public class ProcessingHandler {
      * @param imageView imageview to display image to
      */
     public void refreshProcessing(final ImageView imageView) {
-        final MatOfByte processedByteMat = new MatOfByte();
-        final Mat copyMat = doProcessing(imageMap);
+        getRenderer(imageView).present(processStill());
+    }
+
+    /**
+     * Get the renderer for an image view, a new one is created if the view changed
+     *
+     * @param imageView image view to render to
+     * @return preview renderer
+     */
+    private synchronized PreviewRenderer getRenderer(final ImageView imageView) {
+        if (previewRenderer == null || previewRenderer.getImageView() != imageView)
+            previewRenderer = new PreviewRenderer(imageView);
+        return previewRenderer;
+    }
 
-        Imgcodecs.imencode(imgEncode, copyMat, processedByteMat);
-        imageView.setImage(new Image(new ByteArrayInputStream(processedByteMat.toArray())));
+    /**
+     * Process the current still image and render its preview
+     *
+     * @return preview, valid until the next still image is processed
+     */
+    private synchronized Mat processStill() {
+        stillProcessor.process(imageMap, getParameters(), true);
+        stillProcessor.renderPreview(imageMap, stillPreview);
+        return stillPreview;
+    }
 
-        processedByteMat.release();
-        copyMat.release();
+    /**
+     * Process a pipeline frame into its regions and (if requested) its preview
+     *
+     * @param frame   grabbed frame
+     * @param preview whether to render the preview
+     */
+    private void preprocessFrame(final Frame frame, final boolean preview) {
+        final ProcessingParameters current = getParameters();
+        final int count = captureProcessor.process(frame.getRaw(), current);
+        frame.setRegionCount(count, captureProcessor.getResultNames());
+        frame.setParameters(current);
+        for (int i = 0; i < count; i++) captureProcessor.getResult(i).copyTo(frame.getRegion(i));
+        if (preview) captureProcessor.renderPreview(frame.getRaw(), frame.getPreview());
     }
 
     /**
-     * Do image processing with src and dest
+     * Process and recognize all regions of a frame without publishing the result, like live frames are.
+     * Used for frames not coming from the camera (batch runs). Frames are processed independently of the ones before,
+     * as a processor may get them in any order
      *
-     * @param src source mat to first apply grayscale to
-     * @return destination (processed)
+     * @param src       source frame (BGR)
+     * @param processor processor owned by the calling thread
+     * @return readings by region name
      */
-    private Mat doProcessing(final Mat src) {
-        Mat dest = new Mat();
-        final Optional<int[]> optionalBounds = getRect();
-        doProcessing(src, dest);
+    public Map<String, Reading> recognizeImage(final Mat src, final FrameProcessor processor) {
+        final ProcessingParameters current = getParameters();
+        final int count = processor.process(src, current, true);
+        final Map<String, Reading> readings = new LinkedHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) readings.put(processor.getResultNames().get(i), recognize(processor.getResult(i), current));
+        return readings;
+    }
 
-        if (optionalBounds.isPresent()) {
-            final int[] bounds = optionalBounds.get();
-            final Rect rect = new Rect(bounds[0], bounds[1], bounds[2], bounds[3]);
-            dest = new Mat(dest, rect);
-            Imgproc.rectangle(dest, rect, new Scalar(255, 255, 255), 3);
-            //Imgproc.polylines(dest, Main.INSTANCE.getVertexHandler().getMatOfPoints(), true, new Scalar(255, 255, 255), 3);
+    /**
+     * Recognize every region of the current image and publish the result.
+     * While capturing, the latest processed frame's snapshot is recognized; otherwise the last taken image
+     */
+    public void analyse() {
+        final Pipeline running = pipeline;
+        if (running != null) {
+            final FrameSnapshot snapshot = running.acquireSnapshot();
+            if (snapshot == null) running.requestRecognition();
+            else executorService.submit(() -> analyse(snapshot));
+            return;
         }
-        return dest;
+        if (imageMap.empty()) return;
+        executorService.submit(() -> {
+            final Map<String, Reading> readings = new LinkedHashMap<>();
+            final ProcessingParameters current = getParameters();
+            synchronized (this) {
+                final int count = stillProcessor.process(imageMap, current, true);
+                for (int i = 0; i < count; i++) readings.put(stillProcessor.getResultNames().get(i), recognize(stillProcessor.getResult(i), current));
+            }
+            publish(new RecognitionResult(-1, System.currentTimeMillis(), current.getProfile(), readings));
+        });
     }
 
     /**
-     * Apply different image manipulation from a source mat to a destination mat
+     * Recognize all regions of a snapshot and publish the result, then release the snapshot
      *
-     * @param src  source from
-     * @param dest destination to apply to
+     * @param snapshot retained snapshot
      */
-    private void doProcessing(final Mat src, final Mat dest) {
-        Imgproc.bilateralFilter(src, dest, 10, 17, 17);
-        Imgproc.cvtColor(src, dest, Imgproc.COLOR_BGR2GRAY);
-        Imgproc.GaussianBlur(dest, dest, new Size(1, 1), 1);
-        //TODO: Image processing
-        // Imgproc.Canny(dest, dest, getThresholds()[0], getThresholds()[1]);
-        Imgproc.threshold(dest, dest, getThresholds()[0], getThresholds()[1], Imgproc.THRESH_BINARY);
-        Imgproc.erode(dest, dest, Imgproc.getStructuringElement(Imgproc.MORPH_ELLIPSE, new Size(5, 5)));
+    private void analyse(final FrameSnapshot snapshot) {
+        try {
+            final ProcessingParameters current = snapshot.getParameters();
+            final Map<String, Reading> readings = new LinkedHashMap<>();
+            for (int i = 0; i < snapshot.getRegionCount(); i++) readings.put(snapshot.getRegionNames().get(i), recognize(snapshot.getRegion(i), current));
+            publish(new RecognitionResult(snapshot.getSequence(), snapshot.getTimestamp(), current.getProfile(), readings));
+        } finally {
+            snapshot.release();
+        }
     }
 
     /**
-     * Do tesseract OCR. Convert mat to buffered-image fist
+     * Write the regions of the current image as labeled samples for the classifier of the current config
+     *
+     * @param labels confirmed readings, one per region separated by commas
+     */
+    public void confirmReading(final String labels) {
+        if (imageMap.empty()) {
+            QuickLog.log("No image to take samples from", QuickLog.LogType.WARNING);
+            return;
+        }
+        final String[] regionLabels = labels.split(",");
+        final File sampleDir = Singleton.INSTANCE.getConfigHandler().getSampleDir(Singleton.INSTANCE.getConfigHandler().getCurrentConfig());
+        executorService.submit(() -> {
+            synchronized (this) {
+                final int count = stillProcessor.process(imageMap, getParameters(), true);
+                for (int i = 0; i < Math.min(count, regionLabels.length); i++) {
+                    final int written = sampleWriter.write(stillProcessor.getResult(i), regionLabels[i], sampleDir);
+                    if (written == 0)
+                        QuickLog.log("Cells of " + stillProcessor.getResultNames().get(i) + " do not match \"" + regionLabels[i].trim() + "\"", QuickLog.LogType.WARNING);
+                    else QuickLog.log("Wrote " + written + " samples of " + stillProcessor.getResultNames().get(i), QuickLog.LogType.INFO);
+                }
+            }
+        });
+    }
+
+    /**
+     * Train the classifier from the current config's samples and save the model next to the config.
+     * The model is used from then on if the config is still loaded
+     */
+    public void trainClassifier() {
+        final String config = Singleton.INSTANCE.getConfigHandler().getCurrentConfig();
+        executorService.submit(() -> {
+            final int samples = digitClassifier.train(Singleton.INSTANCE.getConfigHandler().getSampleDir(config));
+            if (samples == 0) {
+                QuickLog.log("No samples to train the classifier with", QuickLog.LogType.WARNING);
+                return;
+            }
+            digitClassifier.save(Singleton.INSTANCE.getConfigHandler().getModelFile(config));
+            final KNearest model = digitClassifier.getModel();
+            updateParameters(current -> Objects.equals(config, current.getProfile()) ? current.withClassifier(model) : current);
+            QuickLog.log("Trained classifier with " + samples + " samples", QuickLog.LogType.INFO);
+        });
+    }
+
+    /**
+     * Do OCR with the selected engine.
+     * The result is published to all recognition listeners
      *
      * @param mat Mat to be converted and searched
      * @return Found string
      */
     public String doOCR(final Mat mat) {
-        final BufferedImage image = new BufferedImage(mat.width(), mat.height(), BufferedImage.TYPE_BYTE_GRAY);
-        final byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
-        mat.get(0, 0, data);
-        return doOCR(image);
+        final ProcessingParameters current = getParameters();
+        return publish(new RecognitionResult(-1, System.currentTimeMillis(), current.getProfile(), FrameProcessor.FRAME_REGION_NAME, recognize(mat, current))).getText();
     }
 
     /**
-     * Do tesseract OCR on java ofx image
+     * Do OCR with the selected engine on java ofx image.
+     * The result is published to all recognition listeners
      *
      * @param image image to do guess on
      * @return guess
      */
     public String doOCR(final Image image) {
-        return doOCR(SwingFXUtils.fromFXImage(image, new BufferedImage((int) image.getWidth(), (int) image.getHeight(), BufferedImage.TYPE_BYTE_GRAY)));
+        final int width = (int) image.getWidth(), height = (int) image.getHeight();
+        final byte[] pixels = new byte[width * height * 4];
+        image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getByteBgraInstance(), pixels, 0, width * 4);
+        final Mat bgra = new Mat(height, width, CvType.CV_8UC4);
+        bgra.put(0, 0, pixels);
+        final Mat gray = new Mat();
+        Imgproc.cvtColor(bgra, gray, Imgproc.COLOR_BGRA2GRAY);
+        bgra.release();
+        try {
+            return doOCR(gray);
+        } finally {
+            gray.release();
+        }
     }
 
     /**
-     * Do Tesseract OCR from BufferedImage
+     * Recognize a processed mat with the current parameters without publishing the result
      *
-     * @param image buffered image
-     * @return tesseract's guess
+     * @param mat processed mat
+     * @return reading
      */
-    private String doOCR(final BufferedImage image) {
-        try {
-            Rectangle rectangle = null;
-            if (getRect().isPresent()) {
-                final int[] bounds = getRect().get();
-                rectangle = new Rectangle(bounds[0], bounds[1], bounds[2], bounds[3]);
+    public Reading recognize(final Mat mat) {
+        return recognize(mat, getParameters());
+    }
+
+    /**
+     * Recognize a processed mat without publishing the result.
+     * Rois that were recognized before (same config, recognition settings and pixels) are answered from the cache
+     *
+     * @param mat        processed mat
+     * @param parameters parameters the mat was processed with
+     * @return reading
+     */
+    public Reading recognize(final Mat mat, final ProcessingParameters parameters) {
+        final RecognitionCache.Key key = recognitionCache.key(parameters.getProfile(), parameters.getEngine(), parameters.getMinConfidence(),
+                parameters.getPattern(), parameters.getClassifier(), mat);
+        final Reading cached = recognitionCache.get(key);
+        if (cached != null) return cached;
+
+        final Reading reading = recognizeUncached(mat, parameters);
+        recognitionCache.put(key, reading);
+        return reading;
+    }
+
+    /**
+     * Recognize a processed mat with the engine, cascade acceptance and classifier of the parameters, bypassing the cache
+     *
+     * @param mat        processed mat
+     * @param parameters parameters to recognize with
+     * @return reading
+     */
+    public Reading recognizeUncached(final Mat mat, final ProcessingParameters parameters) {
+        final EngineType type = parameters.getEngine();
+        final long start = System.nanoTime();
+        final Reading reading;
+        switch (type) {
+            case CASCADE:
+                reading = cascadeEngine.recognize(mat, parameters.getMinConfidence(), parameters.getPattern());
+                break;
+            case KNN:
+                reading = digitClassifier.recognize(mat, parameters.getClassifier());
+                break;
+            default:
+                reading = getRecognitionEngine(type).recognize(mat);
+        }
+        engineStats.get(type).record(System.nanoTime() - start, !reading.isEmpty());
+        return reading;
+    }
+
+    /**
+     * @param type engine type
+     * @return engine of the type
+     */
+    public RecognitionEngine getRecognitionEngine(final EngineType type) {
+        switch (type) {
+            case SEVEN_SEGMENT:
+                return sevenSegmentEngine;
+            case CASCADE:
+                return cascadeEngine;
+            case KNN:
+                return digitClassifier;
+            default:
+                return tesseractEngine;
+        }
+    }
+
+    /**
+     * Get the tesseract pool, loading all instances on first use
+     *
+     * @return tesseract pool
+     */
+    public TesseractPool getTesseractPool() {
+        if (tesseractPool == null) {
+            synchronized (this) {
+                if (tesseractPool == null)
+                    tesseractPool = new TesseractPool(tesseractInstances, "resources/tessdata", "ssd");
+            }
+        }
+        return tesseractPool;
+    }
+
+
+    private RecognitionResult publish(final RecognitionResult result) {
+        for (final RecognitionListener listener : listeners) {
+            try {
+                listener.onResult(result);
+            } catch (final RuntimeException e) {
+                QuickLog.log("Recognition listener failed", QuickLog.LogType.ERROR);
+                e.printStackTrace();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Start continuous recognition of live frames. If capture is not running, it is started without a view
+     *
+     * @param rate target recognitions per second, 0 for every frame
+     */
+    public void startStreaming(final double rate) {
+        this.recognitionRate = Math.max(0, rate);
+        if (pipeline == null) {
+            QuickLog.log("Starting video capture without view", QuickLog.LogType.INFO);
+            if (!openSource()) return;
+            pipeline = createPipeline(null);
+            pipeline.start();
+        }
+        pipeline.setRecognitionRate(recognitionRate);
+        pipeline.setRecognitionEnabled(true);
+        QuickLog.log("Streaming recognition at " + (recognitionRate == 0 ? "camera rate" : recognitionRate + "/s"), QuickLog.LogType.INFO);
+    }
+
+    /**
+     * Stop continuous recognition, capture keeps running
+     */
+    public void stopStreaming() {
+        getPipeline().ifPresent(running -> running.setRecognitionEnabled(false));
+    }
+
+    /**
+     * @return true if live frames are being recognized
+     */
+    public boolean isStreaming() {
+        return getPipeline().map(Pipeline::isRecognitionEnabled).orElse(false);
+    }
+
+    /**
+     * Recognize all regions of a frame from the pipeline. The result is published if the voted reading of any region changed.
+     * The first region is recognized on the calling thread, the others in parallel on the region executor.
+     * Regions that did not change since their last recognition reuse the previous reading
+     *
+     * @param frame processed frame
+     * @return publishes the result, run by the pipeline in frame order. Null if interrupted
+     */
+    private Runnable recognizeFrame(final Frame frame) {
+        final ProcessingParameters current = frame.getParameters();
+        final int count = frame.getRegionCount();
+        final List<String> names = frame.getRegionNames();
+        final Map<String, Reading> readings = new LinkedHashMap<>(count * 2);
+        if (count == 1) {
+            readings.put(names.get(0), recognizeRegion(frame, 0, current));
+        } else {
+            final List<Future<Reading>> futures = new ArrayList<>(count - 1);
+            for (int i = 1; i < count; i++) {
+                final int index = i;
+                futures.add(getRegionExecutor().submit(() -> recognizeRegion(frame, index, current)));
+            }
+            readings.put(names.get(0), recognizeRegion(frame, 0, current));
+            /* The region tasks read the frame, so it must not go back to the pool before all of them finished */
+            boolean interrupted = false;
+            for (int i = 1; i < count; i++) {
+                while (true) {
+                    try {
+                        readings.put(names.get(i), futures.get(i - 1).get());
+                        break;
+                    } catch (final InterruptedException e) {
+                        interrupted = true;
+                    } catch (final ExecutionException e) {
+                        QuickLog.log("Recognizing region " + names.get(i), QuickLog.LogType.ERROR);
+                        e.getCause().printStackTrace();
+                        readings.put(names.get(i), Reading.EMPTY);
+                        break;
+                    }
+                }
             }
-            final String ocr = tesseract.doOCR(image, rectangle);
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        final RecognitionResult result = new RecognitionResult(frame.getSequence(), frame.getTimestamp(), current.getProfile(), readings);
+        /* Checked in frame order together with the publish, every region records its reading and a stable display publishes nothing */
+        return () -> {
+            boolean changed = false;
+            for (final Map.Entry<String, Reading> entry : readings.entrySet()) changed |= getTemporalVote(entry.getKey()).publish(entry.getValue());
+            if (changed) publish(result);
+        };
+    }
+
+    /**
+     * Recognize one region of a frame and vote on its reading over the last frames.
+     * The region is not recognized if its vote is stable and samples sparsely, or if its change gate still holds a reading for it
+     *
+     * @param frame      processed frame
+     * @param index      region index
+     * @param parameters parameters the frame was processed with
+     * @return reading that reached the vote's quorum, empty if none did yet
+     */
+    private Reading recognizeRegion(final Frame frame, final int index, final ProcessingParameters parameters) {
+        final String name = frame.getRegionNames().get(index);
+        final TemporalVote vote = getTemporalVote(name);
+        final Reading stable = vote.check();
+        if (stable != null) return stable;
+
+        final Mat region = frame.getRegion(index);
+        final ChangeGate gate = getChangeGate(name);
+        Reading reading = gate.check(region);
+        if (reading == null) {
+            reading = recognize(region, parameters);
+            gate.update(region, reading, frame.getSequence());
+        }
+        return vote.add(reading, frame.getSequence());
+    }
 
-            if (!ocr.isEmpty()) {
-                if (SettingsHolder.logResultsToFile) FileUtil.writeStringToFile(Singleton.INSTANCE.getProcessedFile(), getFormattedOCR(ocr), true);
-                return ocr;
+    /**
+     * Get the executor recognizing regions in parallel, one thread per tesseract instance
+     *
+     * @return region executor
+     */
+    private ExecutorService getRegionExecutor() {
+        if (regionExecutor == null) {
+            synchronized (this) {
+                if (regionExecutor == null) {
+                    regionExecutor = Executors.newFixedThreadPool(tesseractInstances, runnable -> {
+                        final Thread thread = new Thread(runnable, "region-recognizer");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
             }
+        }
+        return regionExecutor;
+    }
 
-        } catch (final TesseractException e) {
-            QuickLog.log("Doing OCR", QuickLog.LogType.ERROR);
+    /**
+     * Shut the region executor down once its tasks finished, it is created again on next use
+     */
+    private synchronized void shutdownRegionExecutor() {
+        if (regionExecutor == null) return;
+        regionExecutor.shutdown();
+        regionExecutor = null;
+    }
+
+    /**
+     * Record grabbed frames to a raw stream in the recordings directory, while capturing.
+     * The stream can be replayed with {@link ga.abzzezz.source.RawStreamSource}
+     *
+     * @return recording file, empty if it could not be created
+     */
+    public synchronized Optional<File> startRecording() {
+        stopRecording();
+        final File dir = new File(Singleton.INSTANCE.getMainDir(), "recordings");
+        if (!dir.exists()) dir.mkdirs();
+        final File file = new File(dir, new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + RawFrameFormat.EXTENSION);
+        try {
+            recorder = new FrameRecorder(file, recordingCapacity);
+        } catch (final IOException e) {
+            QuickLog.log("Creating recording " + file.getName(), QuickLog.LogType.ERROR);
+            e.printStackTrace();
+            return Optional.empty();
+        }
+        getPipeline().ifPresent(running -> running.setRecorder(recorder));
+        QuickLog.log("Recording to " + file.getName(), QuickLog.LogType.INFO);
+        return Optional.of(file);
+    }
+
+    /**
+     * Stop recording (if recording) and close the recording
+     */
+    public synchronized void stopRecording() {
+        final FrameRecorder current = recorder;
+        if (current == null) return;
+        recorder = null;
+        getPipeline().ifPresent(running -> running.setRecorder(null));
+        try {
+            current.close();
+        } catch (final IOException e) {
+            QuickLog.log("Closing recording", QuickLog.LogType.ERROR);
             e.printStackTrace();
-            return "";
         }
-        return "";
+    }
+
+    public boolean isRecording() {
+        return recorder != null;
+    }
+
+    public long getRecordingCapacity() {
+        return recordingCapacity;
+    }
+
+    /**
+     * Set the space preallocated for a recording, applied to the next recording
+     *
+     * @param recordingCapacity capacity (bytes)
+     */
+    public void setRecordingCapacity(final long recordingCapacity) {
+        this.recordingCapacity = recordingCapacity;
+    }
+
+    /**
+     * Open the frame source for a new pipeline
+     *
+     * @return false if the source could not be opened
+     */
+    private boolean openSource() {
+        frameSource = sourceFactory.get();
+        if (frameSource.isOpened()) {
+            QuickLog.log("Reading from " + frameSource.getName(), QuickLog.LogType.INFO);
+            return true;
+        }
+        QuickLog.log("Could not open " + frameSource.getName(), QuickLog.LogType.ERROR);
+        frameSource.close();
+        frameSource = null;
+        return false;
+    }
+
+    private FrameSource createCameraSource() {
+        return new CameraSource(camIndex);
+    }
+
+    /**
+     * Create a pipeline reading from the opened frame source
+     *
+     * @param display display for processed frames, null to run without a view
+     * @return new pipeline, not started
+     */
+    private Pipeline createPipeline(final Pipeline.Display display) {
+        final Pipeline created = new Pipeline(frameSource, this::preprocessFrame,
+                this::recognizeFrame, display, queueCapacity, overflowPolicy, tesseractInstances);
+        created.setRecognitionRate(recognitionRate);
+        created.setRecorder(recorder);
+        return created;
     }
 
     /**
@@ -229,8 +709,8 @@ public class ProcessingHandler {
      */
     public void stop() {
         QuickLog.log("Stopping video capture", QuickLog.LogType.WARNING);
-        if (videoCapture.isOpened())
-            videoCapture.release();
+        stopPipeline();
+        shutdownRegionExecutor();
         try {
             if (executorService.awaitTermination(2, TimeUnit.SECONDS)) {
                 QuickLog.log("Shutting down threads", QuickLog.LogType.WARNING);
@@ -240,26 +720,89 @@ public class ProcessingHandler {
             QuickLog.log("Shutting down image process thread.", QuickLog.LogType.ERROR);
             e.printStackTrace();
         }
-        videoMat.release();
+        QuickLog.log("Native mat allocations: " + NativeMemoryCounter.getAllocations() + " (" + NativeMemoryCounter.getAllocatedBytes() + " bytes)", QuickLog.LogType.INFO);
+    }
+
+    /**
+     * Stop the pipeline (if running) and release the frame source. A running pipeline closes its source itself,
+     * once none of its stages reads from it anymore
+     */
+    private void stopPipeline() {
+        final Pipeline running = pipeline;
+        pipeline = null;
+        if (running != null) {
+            running.stop();
+            frameSource = null;
+            for (final Stage stage : running.getStages())
+                QuickLog.log("Stage " + stage.getName() + ": " + stage.getProcessed() + " frames, " + stage.getLatency() + ", " + stage.getDropped() + " dropped", QuickLog.LogType.INFO);
+            QuickLog.log("Recognition cache: " + recognitionCache.getHits() + " hits, " + recognitionCache.getMisses() + " misses", QuickLog.LogType.INFO);
+            long skipped = 0, passed = 0;
+            for (final ChangeGate gate : changeGates.values()) {
+                skipped += gate.getSkipped();
+                passed += gate.getPassed();
+            }
+            QuickLog.log("Recognition skipped for " + skipped + " unchanged regions, " + passed + " recognized", QuickLog.LogType.INFO);
+            long sampled = 0;
+            skipped = 0;
+            for (final TemporalVote vote : temporalVotes.values()) {
+                sampled += vote.getSampled();
+                skipped += vote.getSkipped();
+            }
+            QuickLog.log("Recognition skipped for " + skipped + " stable regions, " + sampled + " readings voted on", QuickLog.LogType.INFO);
+            logEngineStats();
+        }
+        changeGates.clear();
+        temporalVotes.clear();
+        if (frameSource != null) {
+            frameSource.close();
+            frameSource = null;
+        }
+    }
+
+    /**
+     * Log the statistics of every engine that was used. For the cascade, also log its stages and the tesseract time it saved
+     */
+    public void logEngineStats() {
+        for (final EngineStats stats : engineStats.values()) {
+            if (stats.getCalls() > 0) QuickLog.log("Engine " + stats, QuickLog.LogType.INFO);
+        }
+        if (engineStats.get(EngineType.CASCADE).getCalls() == 0) return;
+        for (final EngineStats stats : cascadeEngine.getStats())
+            QuickLog.log("Cascade stage " + stats, QuickLog.LogType.INFO);
+        QuickLog.log(String.format("Cascade saved about %.0f ms of tesseract time", cascadeEngine.getSavedMillis()), QuickLog.LogType.INFO);
     }
 
     /**
-     * Format String, so that contains all the information needed and can be read by a extra program
+     * @return current processing parameters. Read them once and use that instance for the whole frame
      */
-    private String getFormattedOCR(final String guess) {
-        //Format date
-        final SimpleDateFormat formatter = new SimpleDateFormat("dd/MM/yyyy HH:mm:ss");
-        final Date date = new Date();
-        return new JSONObject().put("date", formatter.format(date)).put("guess", guess).put("profile", Singleton.INSTANCE.getConfigHandler().getCurrentConfig()).toString();
+    public ProcessingParameters getParameters() {
+        return parameters.get();
     }
 
     /**
-     * Return both thresholds
+     * Replace all processing parameters at once. Cached readings are dropped if the engine changed
      *
-     * @return double array
+     * @param next new parameters
      */
-    public double[] getThresholds() {
-        return thresholds;
+    public void setParameters(final ProcessingParameters next) {
+        final ProcessingParameters previous = parameters.getAndSet(next);
+        if (!previous.recognizesLike(next)) recognitionCache.clear();
+    }
+
+    /**
+     * Change some of the processing parameters, without losing a concurrent change of the others
+     *
+     * @param update derives the new parameters from the current ones, may be called more than once
+     * @return new parameters
+     */
+    public ProcessingParameters updateParameters(final UnaryOperator<ProcessingParameters> update) {
+        ProcessingParameters previous, next;
+        do {
+            previous = parameters.get();
+            next = update.apply(previous);
+        } while (!parameters.compareAndSet(previous, next));
+        if (!previous.recognizesLike(next)) recognitionCache.clear();
+        return next;
     }
 
     /**
@@ -268,10 +811,8 @@ public class ProcessingHandler {
      * @param value value to set to
      * @return value
      */
-    public double setThreshold1(double value) {
-        value = MathUtil.clamp(value, 0, 255);
-        getThresholds()[0] = value;
-        return value;
+    public double setThreshold1(final double value) {
+        return updateParameters(current -> current.withThreshold1(value)).getThreshold1();
     }
 
     /**
@@ -280,27 +821,199 @@ public class ProcessingHandler {
      * @param value value to set to
      * @return value
      */
-    public double setThreshold2(double value) {
-        value = MathUtil.clamp(value, 0, 255);
-        getThresholds()[1] = value;
-        return value;
+    public double setThreshold2(final double value) {
+        return updateParameters(current -> current.withThreshold2(value)).getThreshold2();
+    }
+
+    /**
+     * @return running pipeline, empty if not capturing
+     */
+    public Optional<Pipeline> getPipeline() {
+        return Optional.ofNullable(pipeline);
+    }
+
+    public void addRecognitionListener(final RecognitionListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeRecognitionListener(final RecognitionListener listener) {
+        listeners.remove(listener);
+    }
+
+    public double getRecognitionRate() {
+        return recognitionRate;
+    }
+
+    /**
+     * Set the target recognitions per second while streaming
+     *
+     * @param recognitionRate rate, 0 for every frame
+     */
+    public void setRecognitionRate(final double recognitionRate) {
+        this.recognitionRate = Math.max(0, recognitionRate);
+        getPipeline().ifPresent(running -> running.setRecognitionRate(this.recognitionRate));
+    }
+
+    /**
+     * Get the change gate of a region, created with the current tolerance on first use
+     *
+     * @param region region name
+     * @return change gate in front of the region's streaming recognition
+     */
+    public ChangeGate getChangeGate(final String region) {
+        return changeGates.computeIfAbsent(region, name -> new ChangeGate(changeTolerance));
+    }
+
+    public double getChangeTolerance() {
+        return changeTolerance;
+    }
+
+    /**
+     * Set the change tolerance of all regions
+     *
+     * @param changeTolerance fraction of pixels that may differ, 0 to recognize every change
+     */
+    public void setChangeTolerance(final double changeTolerance) {
+        this.changeTolerance = changeTolerance;
+        for (final ChangeGate gate : changeGates.values()) gate.setTolerance(changeTolerance);
+    }
+
+    /**
+     * Get the temporal vote of a region, created with the current window on first use
+     *
+     * @param region region name
+     * @return vote behind the region's streaming recognition
+     */
+    public TemporalVote getTemporalVote(final String region) {
+        return temporalVotes.computeIfAbsent(region, name -> new TemporalVote(voteWindow, voteQuorum, maxSampleStride));
+    }
+
+    public int getVoteWindow() {
+        return voteWindow;
+    }
+
+    public int getVoteQuorum() {
+        return voteQuorum;
+    }
+
+    public int getMaxSampleStride() {
+        return maxSampleStride;
+    }
+
+    /**
+     * @return recognitions skipped because a region's reading was stable, since the pipeline started
+     */
+    public long getVoteSkipped() {
+        long skipped = 0;
+        for (final TemporalVote vote : temporalVotes.values()) skipped += vote.getSkipped();
+        return skipped;
+    }
+
+    /**
+     * Set how streamed readings are voted on, applied to all regions (their votes restart)
+     *
+     * @param window    readings voting, 1 - {@link TemporalVote#MAX_WINDOW}; 1 with a quorum of 1 emits every reading
+     * @param quorum    votes a reading needs to be emitted, 1 - window
+     * @param maxStride largest sampling stride once a reading is stable, 1 to recognize every frame
+     */
+    public void setVoting(final int window, final int quorum, final int maxStride) {
+        this.voteWindow = Math.max(1, Math.min(TemporalVote.MAX_WINDOW, window));
+        this.voteQuorum = Math.max(1, Math.min(voteWindow, quorum));
+        this.maxSampleStride = Math.max(1, maxStride);
+        for (final TemporalVote vote : temporalVotes.values()) vote.configure(voteWindow, voteQuorum, maxSampleStride);
+    }
+
+    public RecognitionCache getRecognitionCache() {
+        return recognitionCache;
+    }
+
+    public EngineType getEngine() {
+        return getParameters().getEngine();
+    }
+
+    /**
+     * Select how rois are binarized. {@link ThresholdMode#STATIC} falls back to the config's threshold values
+     *
+     * @param thresholdMode threshold mode
+     */
+    public void setThresholdMode(final ThresholdMode thresholdMode) {
+        updateParameters(current -> current.withThresholdMode(thresholdMode));
     }
 
     /**
-     * Calculates the bounds for a rectangle from given points (vertex handler)
+     * Select the recognizer. Cached readings are dropped, since they came from the previous engine
      *
-     * @return int array containing x, y, width, height
+     * @param engine engine
+     */
+    public void setEngine(final EngineType engine) {
+        updateParameters(current -> current.withEngine(engine));
+    }
+
+    /**
+     * @param type engine type
+     * @return statistics of the engine
+     */
+    public EngineStats getEngineStats(final EngineType type) {
+        return engineStats.get(type);
+    }
+
+    public CascadeEngine getCascadeEngine() {
+        return cascadeEngine;
+    }
+
+    public int getTesseractInstances() {
+        return tesseractInstances;
+    }
+
+    /**
+     * Set the number of pooled tesseract instances, only applies if the pool has not been created yet
+     *
+     * @param tesseractInstances number of instances, at least 1
+     */
+    public void setTesseractInstances(final int tesseractInstances) {
+        this.tesseractInstances = Math.max(1, tesseractInstances);
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Set the capacity of the stage queues, applied the next time capture is started
+     *
+     * @param queueCapacity capacity, at least 1
+     */
+    public void setQueueCapacity(final int queueCapacity) {
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Set the overflow policy of the stage queues, applied the next time capture is started
+     *
+     * @param overflowPolicy policy
+     */
+    public void setOverflowPolicy(final OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Set where frames are read from, applied the next time capture is started
+     *
+     * @param sourceFactory creates an opened source, null for the camera
+     */
+    public void setSourceFactory(final Supplier<FrameSource> sourceFactory) {
+        this.sourceFactory = sourceFactory == null ? this::createCameraSource : sourceFactory;
+    }
+
+    /**
+     * @return name of the source capture reads from, empty if not capturing
      */
-    private Optional<int[]> getRect() {
-        if (Singleton.INSTANCE.getVertexHandler().getPoints().size() >= 3) {
-            final Point p1 = Singleton.INSTANCE.getVertexHandler().getPoints().get(0);
-            final Point p2 = Singleton.INSTANCE.getVertexHandler().getPoints().get(2);
-            final int x = (int) (Math.min(p1.x, p2.x));
-            final int y = (int) (Math.min(p1.y, p2.y));
-            final int width = (int) (Math.max(p1.x, p2.x)) - x;
-            final int height = (int) (Math.max(p1.y, p2.y)) - y;
-            return Optional.of(new int[]{x, y, width, height});
-        } else return Optional.empty();
+    public Optional<String> getFrameSourceName() {
+        return Optional.ofNullable(frameSource).map(FrameSource::getName);
     }
 
     public int getCamIndex() {
@@ -0,0 +1,214 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.image;
+
+import ga.abzzezz.recognition.CascadeEngine;
+import ga.abzzezz.recognition.EngineType;
+import ga.abzzezz.util.MathUtil;
+import ga.abzzezz.vertex.Region;
+import org.opencv.ml.KNearest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable set of everything a frame is processed and recognized with: threshold mode and values, regions, blur and kernel size,
+ * engine, cascade acceptance, classifier model and the name of the config it came from.
+ * The processing handler publishes the current set through an atomic reference; processing threads read it once per frame,
+ * so a frame never sees half of a change. A change is a new instance, applying a config a single swap
+ */
+public final class ProcessingParameters {
+    /**
+     * Largest erode kernel and largest blur
+     */
+    public static final int MAX_KERNEL_SIZE = 31, MAX_BLUR_SIZE = 15;
+    public static final ProcessingParameters DEFAULT = new ProcessingParameters(ThresholdMode.STATIC, 0, 0, 0, ProcessingWorkspace.KERNEL_SIZE, EngineType.TESSERACT, Collections.emptyList());
+    private static final Pattern DEFAULT_PATTERN = Pattern.compile(CascadeEngine.NUMBER_PATTERN);
+
+    private final ThresholdMode thresholdMode;
+    private final double threshold1, threshold2;
+    private final int blurSize, kernelSize;
+    private final EngineType engine;
+    private final List<Region> regions;
+    /**
+     * Config the parameters were loaded from, null if none was loaded
+     */
+    private final String profile;
+    /**
+     * Confidence and pattern a cascade reading needs to be accepted (null pattern: any text)
+     */
+    private final float minConfidence;
+    private final Pattern pattern;
+    /**
+     * Model of the knn classifier, null if the config has none
+     */
+    private final KNearest classifier;
+
+    /**
+     * Parameters without a config: default cascade acceptance and no classifier
+     *
+     * @param thresholdMode how rois are binarized
+     * @param threshold1    threshold value (the fallback of the adaptive modes), clamped between 0 & 255
+     * @param threshold2    max value for the threshold, clamped between 0 & 255
+     * @param blurSize      gaussian blur before the threshold, 0 for none. Made odd and clamped to {@link #MAX_BLUR_SIZE}
+     * @param kernelSize    erode kernel size, clamped between 1 & {@link #MAX_KERNEL_SIZE}
+     * @param engine        recognition engine
+     * @param regions       regions to process, copied
+     */
+    public ProcessingParameters(final ThresholdMode thresholdMode, final double threshold1, final double threshold2, final int blurSize, final int kernelSize,
+                                final EngineType engine, final List<Region> regions) {
+        this(thresholdMode, threshold1, threshold2, blurSize, kernelSize, engine, Collections.unmodifiableList(new ArrayList<>(regions)),
+                null, CascadeEngine.DEFAULT_MIN_CONFIDENCE, DEFAULT_PATTERN, null);
+    }
+
+    private ProcessingParameters(final ThresholdMode thresholdMode, final double threshold1, final double threshold2, final int blurSize, final int kernelSize,
+                                 final EngineType engine, final List<Region> regions, final String profile, final float minConfidence, final Pattern pattern,
+                                 final KNearest classifier) {
+        this.thresholdMode = thresholdMode;
+        this.threshold1 = MathUtil.clamp(threshold1, 0, 255);
+        this.threshold2 = MathUtil.clamp(threshold2, 0, 255);
+        this.blurSize = blurSize <= 1 ? 0 : (int) MathUtil.clamp(blurSize | 1, 3, MAX_BLUR_SIZE);
+        this.kernelSize = (int) MathUtil.clamp(kernelSize, 1, MAX_KERNEL_SIZE);
+        this.engine = engine;
+        this.regions = regions;
+        this.profile = profile;
+        this.minConfidence = minConfidence;
+        this.pattern = pattern;
+        this.classifier = classifier;
+    }
+
+    public ProcessingParameters withThresholdMode(final ThresholdMode thresholdMode) {
+        return new ProcessingParameters(thresholdMode, threshold1, threshold2, blurSize, kernelSize, engine, regions, profile, minConfidence, pattern, classifier);
+    }
+
+    public ProcessingParameters withThreshold1(final double threshold1) {
+        return new ProcessingParameters(thresholdMode, threshold1, threshold2, blurSize, kernelSize, engine, regions, profile, minConfidence, pattern, classifier);
+    }
+
+    public ProcessingParameters withThreshold2(final double threshold2) {
+        return new ProcessingParameters(thresholdMode, threshold1, threshold2, blurSize, kernelSize, engine, regions, profile, minConfidence, pattern, classifier);
+    }
+
+    public ProcessingParameters withBlurSize(final int blurSize) {
+        return new ProcessingParameters(thresholdMode, threshold1, threshold2, blurSize, kernelSize, engine, regions, profile, minConfidence, pattern, classifier);
+    }
+
+    public ProcessingParameters withKernelSize(final int kernelSize) {
+        return new ProcessingParameters(thresholdMode, threshold1, threshold2, blurSize, kernelSize, engine, regions, profile, minConfidence, pattern, classifier);
+    }
+
+    public ProcessingParameters withEngine(final EngineType engine) {
+        return engine == this.engine ? this
+                : new ProcessingParameters(thresholdMode, threshold1, threshold2, blurSize, kernelSize, engine, regions, profile, minConfidence, pattern, classifier);
+    }
+
+    public ProcessingParameters withRegions(final List<Region> regions) {
+        return new ProcessingParameters(thresholdMode, threshold1, threshold2, blurSize, kernelSize, engine, Collections.unmodifiableList(new ArrayList<>(regions)),
+                profile, minConfidence, pattern, classifier);
+    }
+
+    /**
+     * @param profile name of the config the parameters belong to
+     */
+    public ProcessingParameters withProfile(final String profile) {
+        return new ProcessingParameters(thresholdMode, threshold1, threshold2, blurSize, kernelSize, engine, regions, profile, minConfidence, pattern, classifier);
+    }
+
+    /**
+     * @param minConfidence confidence a cascade reading needs to be accepted
+     * @param pattern       pattern a cascade reading has to match, null or empty to accept any text
+     */
+    public ProcessingParameters withCascade(final float minConfidence, final String pattern) {
+        return new ProcessingParameters(thresholdMode, threshold1, threshold2, blurSize, kernelSize, engine, regions, profile, minConfidence,
+                pattern == null || pattern.isEmpty() ? null : Pattern.compile(pattern), classifier);
+    }
+
+    /**
+     * @param classifier knn model, null for none
+     */
+    public ProcessingParameters withClassifier(final KNearest classifier) {
+        return new ProcessingParameters(thresholdMode, threshold1, threshold2, blurSize, kernelSize, engine, regions, profile, minConfidence, pattern, classifier);
+    }
+
+    public ThresholdMode getThresholdMode() {
+        return thresholdMode;
+    }
+
+    public double getThreshold1() {
+        return threshold1;
+    }
+
+    public double getThreshold2() {
+        return threshold2;
+    }
+
+    /**
+     * @return gaussian blur size, 0 for none
+     */
+    public int getBlurSize() {
+        return blurSize;
+    }
+
+    public int getKernelSize() {
+        return kernelSize;
+    }
+
+    public EngineType getEngine() {
+        return engine;
+    }
+
+    /**
+     * @return regions to process, not modifiable. Empty to process the whole frame
+     */
+    public List<Region> getRegions() {
+        return regions;
+    }
+
+    /**
+     * @return name of the config the parameters belong to, null if none was loaded
+     */
+    public String getProfile() {
+        return profile;
+    }
+
+    public float getMinConfidence() {
+        return minConfidence;
+    }
+
+    /**
+     * @return cascade acceptance pattern, null if any text is accepted
+     */
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return knn model, null if there is none
+     */
+    public KNearest getClassifier() {
+        return classifier;
+    }
+
+    /**
+     * @param other parameters to compare with
+     * @return true if a roi is recognized the same with both (same engine, cascade acceptance and classifier), so cached readings stay valid
+     */
+    public boolean recognizesLike(final ProcessingParameters other) {
+        return engine == other.engine && classifier == other.classifier && minConfidence == other.minConfidence
+                && (pattern == null ? other.pattern == null : other.pattern != null && pattern.pattern().equals(other.pattern.pattern()));
+    }
+
+    /**
+     * @return pixels the filters reach beyond a roi, the margin a crop needs
+     */
+    public int getFilterMargin() {
+        return kernelSize / 2 + blurSize / 2 + 1;
+    }
+}
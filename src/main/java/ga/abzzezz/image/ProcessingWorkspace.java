@@ -0,0 +1,275 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.image;
+
+import ga.abzzezz.vertex.Region;
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Per-thread working memory for the image processing.
+ * Every stage writes into a mat owned by the workspace, so buffers are allocated once and reused for every frame.
+ * Kernels and roi headers are only rebuilt when the parameters or the frame geometry change.
+ * <p>
+ * If a roi is given, the frame is cropped to the roi (plus a margin for the kernels) before any filter runs,
+ * so the cost depends on the roi size rather than the frame size.
+ * A quadrilateral region can instead be rectified: it is warped straight from the frame into a small upright image
+ * of fixed height, so skewed displays lose their background and the recognition input has a predictable size.
+ * A workspace must only be used by one thread at a time.
+ */
+public class ProcessingWorkspace {
+    /**
+     * Kernel shape and default size used to erode the thresholded image
+     */
+    public static final int KERNEL_SHAPE = Imgproc.MORPH_ELLIPSE;
+    public static final int KERNEL_SIZE = 5;
+    /**
+     * Height of rectified regions. The width follows the region's aspect ratio, limited to a multiple of the height
+     */
+    public static final int RECTIFIED_HEIGHT = 48;
+    public static final int MAX_RECTIFIED_ASPECT = 12;
+
+    /**
+     * Stage output
+     */
+    private final Mat processed = new Mat();
+    /**
+     * Data address of the stage output, to count reallocations
+     */
+    private long processedAddress;
+    /**
+     * Cached erode kernel
+     */
+    private Mat kernel;
+    private int kernelSize = -1;
+    /**
+     * Histograms and tiles for the adaptive threshold modes
+     */
+    private final AdaptiveThreshold adaptiveThreshold = new AdaptiveThreshold();
+    /**
+     * Reused size of the blur
+     */
+    private final Size blurSize = new Size();
+    /**
+     * Roi grown by the kernel margin and clamped to the frame, and the roi relative to it
+     */
+    private final Rect cropRect = new Rect(), roiRect = new Rect();
+    /**
+     * Reused array for the roi bounds and the bounds the rects were computed from
+     */
+    private final int[] bounds = new int[4], cachedBounds = new int[4];
+    private int cachedWidth = -1, cachedHeight = -1, cachedMargin = -1;
+    /**
+     * Header viewing the roi of the processed mat and the address of the buffer it was created on
+     */
+    private Mat roiView;
+    private long roiViewSource;
+    /**
+     * Warped region and the perspective transform for it, only recomputed if the region changed
+     */
+    private final Mat warped = new Mat();
+    private long warpedAddress;
+    private Mat transform;
+    private Region transformRegion;
+    private final Size rectifiedSize = new Size();
+
+    /**
+     * Process a frame. The returned mat is owned by the workspace and stays valid until the next call
+     *
+     * @param src         source frame (BGR)
+     * @param parameters  thresholds and kernel size
+     * @param bounds      roi bounds (x, y, width, height) or null for the whole frame
+     * @param independent true if the frame is not the next one of a stream, see {@link AdaptiveThreshold#apply(Mat, ProcessingParameters, boolean)}
+     * @return processed frame or its roi
+     */
+    public Mat process(final Mat src, final ProcessingParameters parameters, final int[] bounds, final boolean independent) {
+        if (bounds == null || !updateRects(src, bounds, parameters.getFilterMargin())) {
+            filter(src, parameters, independent);
+            return processed;
+        }
+        /* A header on the source keeps the whole frame alive, so it is not cached (batch sources allocate every frame) */
+        final Mat sourceView = src.submat(cropRect);
+        try {
+            filter(sourceView, parameters, independent);
+        } finally {
+            sourceView.release();
+        }
+        return getRoiView();
+    }
+
+    /**
+     * Rectify a quadrilateral region and process it. The returned mat is owned by the workspace and stays valid until the next call
+     *
+     * @param src         source frame (BGR)
+     * @param parameters  thresholds and kernel size
+     * @param region      quadrilateral region
+     * @param independent true if the frame is not the next one of a stream
+     * @return processed, rectified region
+     */
+    public Mat rectify(final Mat src, final ProcessingParameters parameters, final Region region, final boolean independent) {
+        if (region != transformRegion) updateTransform(region);
+        Imgproc.warpPerspective(src, warped, transform, rectifiedSize, Imgproc.INTER_LINEAR, Core.BORDER_REPLICATE);
+        warpedAddress = NativeMemoryCounter.track(warped, warpedAddress);
+        filter(warped, parameters, independent);
+        return processed;
+    }
+
+    /**
+     * Compute the perspective transform mapping a region's corners onto an upright rectangle.
+     * The rectangle keeps the region's aspect ratio (mean of the opposite edges) at {@link #RECTIFIED_HEIGHT}
+     *
+     * @param region quadrilateral region
+     */
+    private void updateTransform(final Region region) {
+        final Point topLeft = region.getCorner(0), topRight = region.getCorner(1), bottomRight = region.getCorner(2), bottomLeft = region.getCorner(3);
+        final double width = (distance(topLeft, topRight) + distance(bottomLeft, bottomRight)) / 2;
+        final double height = (distance(topLeft, bottomLeft) + distance(topRight, bottomRight)) / 2;
+        final int rectifiedWidth = height <= 0 ? RECTIFIED_HEIGHT : (int) Math.round(Math.min(MAX_RECTIFIED_ASPECT, Math.max(1.0 / RECTIFIED_HEIGHT, width / height)) * RECTIFIED_HEIGHT);
+        rectifiedSize.width = Math.max(1, rectifiedWidth);
+        rectifiedSize.height = RECTIFIED_HEIGHT;
+
+        final MatOfPoint2f from = new MatOfPoint2f(topLeft, topRight, bottomRight, bottomLeft);
+        final MatOfPoint2f to = new MatOfPoint2f(new Point(0, 0), new Point(rectifiedSize.width - 1, 0),
+                new Point(rectifiedSize.width - 1, rectifiedSize.height - 1), new Point(0, rectifiedSize.height - 1));
+        if (transform != null) transform.release();
+        transform = Imgproc.getPerspectiveTransform(from, to);
+        NativeMemoryCounter.record(transform);
+        from.release();
+        to.release();
+        transformRegion = region;
+    }
+
+    private static double distance(final Point a, final Point b) {
+        return Math.hypot(a.x - b.x, a.y - b.y);
+    }
+
+    /**
+     * Filter chain: grayscale, blur (if set), threshold (static or adaptive), erode
+     *
+     * @param src         source (BGR)
+     * @param parameters  thresholds and kernel size
+     * @param independent true if the source is not the next frame of a stream
+     */
+    private void filter(final Mat src, final ProcessingParameters parameters, final boolean independent) {
+        Imgproc.cvtColor(src, processed, Imgproc.COLOR_BGR2GRAY);
+        if (parameters.getBlurSize() > 0) {
+            blurSize.width = blurSize.height = parameters.getBlurSize();
+            Imgproc.GaussianBlur(processed, processed, blurSize, 0);
+        }
+        if (parameters.getThresholdMode() == ThresholdMode.STATIC)
+            Imgproc.threshold(processed, processed, parameters.getThreshold1(), parameters.getThreshold2(), Imgproc.THRESH_BINARY);
+        else adaptiveThreshold.apply(processed, parameters, independent);
+        Imgproc.erode(processed, processed, getKernel(parameters.getKernelSize()));
+        processedAddress = NativeMemoryCounter.track(processed, processedAddress);
+    }
+
+    /**
+     * Compute the crop and roi rects if the bounds, the filter margin or the frame size changed
+     *
+     * @param src    source frame
+     * @param bounds roi bounds
+     * @param margin pixels the filters reach beyond the roi
+     * @return false if the roi does not overlap the frame
+     */
+    private boolean updateRects(final Mat src, final int[] bounds, final int margin) {
+        if (src.width() == cachedWidth && src.height() == cachedHeight && margin == cachedMargin && bounds[0] == cachedBounds[0] && bounds[1] == cachedBounds[1]
+                && bounds[2] == cachedBounds[2] && bounds[3] == cachedBounds[3])
+            return cropRect.width > 0 && cropRect.height > 0;
+
+        System.arraycopy(bounds, 0, cachedBounds, 0, 4);
+        cachedWidth = src.width();
+        cachedHeight = src.height();
+        cachedMargin = margin;
+        invalidateRoiView();
+
+        /* Clamp the roi to the frame, then grow it by the filters' reach so they see the same neighbourhood as on the full frame */
+        final int x1 = Math.max(0, bounds[0]), y1 = Math.max(0, bounds[1]);
+        final int x2 = Math.min(src.width(), bounds[0] + bounds[2]), y2 = Math.min(src.height(), bounds[1] + bounds[3]);
+        if (x2 <= x1 || y2 <= y1) {
+            cropRect.width = cropRect.height = 0;
+            return false;
+        }
+        cropRect.x = Math.max(0, x1 - margin);
+        cropRect.y = Math.max(0, y1 - margin);
+        cropRect.width = Math.min(src.width(), x2 + margin) - cropRect.x;
+        cropRect.height = Math.min(src.height(), y2 + margin) - cropRect.y;
+        roiRect.x = x1 - cropRect.x;
+        roiRect.y = y1 - cropRect.y;
+        roiRect.width = x2 - x1;
+        roiRect.height = y2 - y1;
+        return true;
+    }
+
+    /**
+     * Release the cached roi header
+     */
+    private void invalidateRoiView() {
+        if (roiView != null) roiView.release();
+        roiView = null;
+    }
+
+    /**
+     * Get the erode kernel, only rebuilt if the size changed
+     *
+     * @param size kernel size
+     * @return structuring element
+     */
+    private Mat getKernel(final int size) {
+        if (kernel == null || kernelSize != size) {
+            if (kernel != null) kernel.release();
+            kernel = Imgproc.getStructuringElement(KERNEL_SHAPE, new Size(size, size));
+            kernelSize = size;
+            NativeMemoryCounter.record(kernel);
+        }
+        return kernel;
+    }
+
+    /**
+     * Get a header viewing the roi of the processed mat. A new header is only created if the rects or the buffer changed
+     *
+     * @return view of the roi
+     */
+    private Mat getRoiView() {
+        if (roiView == null || processedAddress != roiViewSource) {
+            if (roiView != null) roiView.release();
+            roiView = new Mat(processed, roiRect);
+            roiViewSource = processedAddress;
+        }
+        return roiView;
+    }
+
+    /**
+     * @return reused array to write roi bounds into
+     */
+    public int[] getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Release all native memory held by the workspace
+     */
+    public void release() {
+        invalidateRoiView();
+        adaptiveThreshold.release();
+        processed.release();
+        warped.release();
+        if (transform != null) transform.release();
+        transform = null;
+        transformRegion = null;
+        if (kernel != null) kernel.release();
+        kernel = null;
+        kernelSize = -1;
+        cachedWidth = cachedHeight = cachedMargin = -1;
+        processedAddress = roiViewSource = warpedAddress = 0;
+    }
+}
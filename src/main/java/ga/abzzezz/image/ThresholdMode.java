@@ -0,0 +1,27 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.image;
+
+/**
+ * How the grayscale roi is binarized
+ */
+public enum ThresholdMode {
+    /**
+     * Fixed threshold values of the config. Breaks when the light changes, but costs nothing extra
+     */
+    STATIC,
+    /**
+     * One threshold per frame, picked from the roi's histogram (Otsu). Follows changes of the overall brightness
+     */
+    OTSU,
+    /**
+     * One threshold per tile of the roi, each picked from the tile's histogram.
+     * Follows uneven light (reflections, shadows across the display); flat tiles use the threshold of the whole roi
+     */
+    TILED
+}
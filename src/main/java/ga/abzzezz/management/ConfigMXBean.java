@@ -0,0 +1,47 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.management;
+
+import java.util.List;
+
+/**
+ * Loaded configs, with operations to reload and switch them
+ */
+public interface ConfigMXBean {
+    List<String> getConfigNames();
+
+    /**
+     * @return name of the current config, empty if none was loaded
+     */
+    String getCurrentConfig();
+
+    /**
+     * @return time the configs were last loaded at (ms since the epoch)
+     */
+    long getLastReloadTime();
+
+    /**
+     * @return time the last load of the configs took (ms)
+     */
+    double getLastReloadMillis();
+
+    /**
+     * Read all configs from the config directory again
+     *
+     * @return number of configs loaded
+     */
+    int reloadConfigs();
+
+    /**
+     * Load a config by name, preferring the all mode config if there are several
+     *
+     * @param name config name
+     * @return false if there is no config with the name
+     */
+    boolean loadConfig(String name);
+}
@@ -0,0 +1,62 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.management;
+
+import ga.abzzezz.Singleton;
+import ga.abzzezz.config.Config;
+import ga.abzzezz.config.ConfigHandler;
+import ga.abzzezz.util.QuickLog;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Exposes the {@link ConfigHandler}
+ */
+public class Configs implements ConfigMXBean {
+
+    private ConfigHandler handler() {
+        return Singleton.INSTANCE.getConfigHandler();
+    }
+
+    @Override
+    public List<String> getConfigNames() {
+        return handler().getConfigs().stream().map(Config::getName).distinct().collect(Collectors.toList());
+    }
+
+    @Override
+    public String getCurrentConfig() {
+        return Optional.ofNullable(handler().getCurrentConfig()).orElse("");
+    }
+
+    @Override
+    public long getLastReloadTime() {
+        return handler().getLastReloadTime();
+    }
+
+    @Override
+    public double getLastReloadMillis() {
+        return handler().getLastReloadNanos() / 1e6;
+    }
+
+    @Override
+    public int reloadConfigs() {
+        handler().loadConfigs();
+        return handler().getConfigs().size();
+    }
+
+    @Override
+    public boolean loadConfig(final String name) {
+        final Optional<Config> config = handler().findConfig(name);
+        if (!config.isPresent()) return false;
+        QuickLog.log("Loading config " + name + " over JMX", QuickLog.LogType.INFO);
+        handler().loadConfig(config.get());
+        return true;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.management;
+
+import ga.abzzezz.util.QuickLog;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Registers the application's MXBeans with the platform MBean server, so jconsole or any JMX client can watch
+ * and tune a running instance. Beans are named {@code ga.abzzezz:type=<Processing|Serial|Config>}
+ */
+public final class ManagementBeans {
+    public static final String DOMAIN = "ga.abzzezz";
+
+    private ManagementBeans() {
+    }
+
+    /**
+     * Register all beans. Beans already registered (from an earlier call) are left as they are
+     */
+    public static void register() {
+        register("Processing", new Processing());
+        register("Serial", new Serial());
+        register("Config", new Configs());
+    }
+
+    private static void register(final String type, final Object bean) {
+        try {
+            final ObjectName name = new ObjectName(DOMAIN, "type", type);
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) server.registerMBean(bean, name);
+        } catch (final JMException e) {
+            QuickLog.log("Registering MBean " + type, QuickLog.LogType.ERROR);
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.management;
+
+import ga.abzzezz.Singleton;
+import ga.abzzezz.image.ProcessingHandler;
+import ga.abzzezz.image.ThresholdMode;
+import ga.abzzezz.metrics.LatencyHistogram;
+import ga.abzzezz.pipeline.Pipeline;
+import ga.abzzezz.pipeline.Stage;
+import ga.abzzezz.recognition.EngineType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exposes the {@link ProcessingHandler}. Attributes are read from volatile fields and counters, never under a lock,
+ * so polling them does not slow the pipeline down
+ */
+public class Processing implements ProcessingMXBean {
+    /**
+     * Rate meters of the stages of the pipeline they were created for, replaced when the pipeline changes
+     */
+    private volatile Meters meters = new Meters(null);
+
+    private ProcessingHandler handler() {
+        return Singleton.INSTANCE.getProcessingHandler();
+    }
+
+    private Meters meters(final Pipeline pipeline) {
+        Meters current = meters;
+        if (current.pipeline != pipeline) meters = current = new Meters(pipeline);
+        return current;
+    }
+
+    @Override
+    public boolean isCapturing() {
+        return handler().getPipeline().isPresent();
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return handler().isStreaming();
+    }
+
+    @Override
+    public boolean isRecording() {
+        return handler().isRecording();
+    }
+
+    @Override
+    public String getFrameSource() {
+        return handler().getFrameSourceName().orElse("");
+    }
+
+    @Override
+    public int getCamIndex() {
+        return handler().getCamIndex();
+    }
+
+    @Override
+    public double getFps() {
+        return handler().getPipeline().map(pipeline -> {
+            final Stage grab = pipeline.getStages().get(0);
+            return meters(pipeline).rate(grab);
+        }).orElse(0D);
+    }
+
+    @Override
+    public List<StageInfo> getStages() {
+        return handler().getPipeline().map(pipeline -> {
+            final Meters current = meters(pipeline);
+            final List<StageInfo> stages = new ArrayList<>();
+            for (final Stage stage : pipeline.getStages()) {
+                final LatencyHistogram latency = stage.getLatency();
+                stages.add(new StageInfo(stage.getName(), current.rate(stage), millis(latency.getPercentile(0.5)), millis(latency.getPercentile(0.99)),
+                        millis(latency.getMax()), stage.getProcessed(), stage.getDropped(), stage.getQueueDepth()));
+            }
+            return stages;
+        }).orElse(Collections.emptyList());
+    }
+
+    @Override
+    public double getRecognitionP50Millis() {
+        return handler().getPipeline().map(pipeline -> millis(pipeline.getRecognitionLatency().getPercentile(0.5))).orElse(0D);
+    }
+
+    @Override
+    public double getRecognitionP99Millis() {
+        return handler().getPipeline().map(pipeline -> millis(pipeline.getRecognitionLatency().getPercentile(0.99))).orElse(0D);
+    }
+
+    @Override
+    public long getRecognitionSkipped() {
+        return handler().getPipeline().map(Pipeline::getRecognitionSkipped).orElse(0L);
+    }
+
+    @Override
+    public long getVoteSkipped() {
+        return handler().getVoteSkipped();
+    }
+
+    @Override
+    public int getVoteWindow() {
+        return handler().getVoteWindow();
+    }
+
+    @Override
+    public void setVoteWindow(final int voteWindow) {
+        handler().setVoting(voteWindow, handler().getVoteQuorum(), handler().getMaxSampleStride());
+    }
+
+    @Override
+    public int getVoteQuorum() {
+        return handler().getVoteQuorum();
+    }
+
+    @Override
+    public void setVoteQuorum(final int voteQuorum) {
+        handler().setVoting(handler().getVoteWindow(), voteQuorum, handler().getMaxSampleStride());
+    }
+
+    @Override
+    public int getMaxSampleStride() {
+        return handler().getMaxSampleStride();
+    }
+
+    @Override
+    public void setMaxSampleStride(final int maxSampleStride) {
+        handler().setVoting(handler().getVoteWindow(), handler().getVoteQuorum(), maxSampleStride);
+    }
+
+    @Override
+    public String getThresholdMode() {
+        return handler().getParameters().getThresholdMode().name();
+    }
+
+    @Override
+    public void setThresholdMode(final String thresholdMode) {
+        handler().setThresholdMode(ThresholdMode.valueOf(thresholdMode.trim().toUpperCase(Locale.ROOT)));
+    }
+
+    @Override
+    public double getThreshold1() {
+        return handler().getParameters().getThreshold1();
+    }
+
+    @Override
+    public void setThreshold1(final double threshold1) {
+        handler().setThreshold1(threshold1);
+    }
+
+    @Override
+    public double getThreshold2() {
+        return handler().getParameters().getThreshold2();
+    }
+
+    @Override
+    public void setThreshold2(final double threshold2) {
+        handler().setThreshold2(threshold2);
+    }
+
+    @Override
+    public int getKernelSize() {
+        return handler().getParameters().getKernelSize();
+    }
+
+    @Override
+    public void setKernelSize(final int kernelSize) {
+        handler().updateParameters(current -> current.withKernelSize(kernelSize));
+    }
+
+    @Override
+    public int getBlurSize() {
+        return handler().getParameters().getBlurSize();
+    }
+
+    @Override
+    public void setBlurSize(final int blurSize) {
+        handler().updateParameters(current -> current.withBlurSize(blurSize));
+    }
+
+    @Override
+    public String getEngine() {
+        return handler().getEngine().name();
+    }
+
+    @Override
+    public void setEngine(final String engine) {
+        handler().setEngine(EngineType.valueOf(engine.trim().toUpperCase(Locale.ROOT)));
+    }
+
+    @Override
+    public double getRecognitionRate() {
+        return handler().getRecognitionRate();
+    }
+
+    @Override
+    public void setRecognitionRate(final double recognitionRate) {
+        handler().setRecognitionRate(recognitionRate);
+    }
+
+    @Override
+    public void resetLatencies() {
+        handler().getPipeline().ifPresent(pipeline -> {
+            for (final Stage stage : pipeline.getStages()) stage.getLatency().reset();
+            pipeline.getRecognitionLatency().reset();
+        });
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static final class Meters {
+        private final Pipeline pipeline;
+        private final Map<Stage, RateMeter> stages = new ConcurrentHashMap<>();
+
+        private Meters(final Pipeline pipeline) {
+            this.pipeline = pipeline;
+        }
+
+        private double rate(final Stage stage) {
+            return stages.computeIfAbsent(stage, key -> new RateMeter(stage.getProcessed())).rate(stage.getProcessed());
+        }
+    }
+}
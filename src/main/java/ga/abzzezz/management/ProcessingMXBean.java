@@ -0,0 +1,118 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.management;
+
+import java.util.List;
+
+/**
+ * Live state of the capture pipeline and the processing settings
+ */
+public interface ProcessingMXBean {
+    /**
+     * @return true while the pipeline is running
+     */
+    boolean isCapturing();
+
+    boolean isStreaming();
+
+    boolean isRecording();
+
+    /**
+     * @return name of the source frames are read from, empty if not capturing
+     */
+    String getFrameSource();
+
+    int getCamIndex();
+
+    /**
+     * @return frames grabbed per second, since the previous read of any rate attribute
+     */
+    double getFps();
+
+    /**
+     * @return per stage figures, empty if not capturing
+     */
+    List<StageInfo> getStages();
+
+    /**
+     * @return median time from grab to recognized (ms)
+     */
+    double getRecognitionP50Millis();
+
+    double getRecognitionP99Millis();
+
+    long getRecognitionSkipped();
+
+    /**
+     * @return recognitions skipped because a region's reading was stable
+     */
+    long getVoteSkipped();
+
+    int getVoteWindow();
+
+    /**
+     * @param voteWindow readings a region votes over
+     */
+    void setVoteWindow(int voteWindow);
+
+    int getVoteQuorum();
+
+    /**
+     * @param voteQuorum votes a reading needs to be emitted
+     */
+    void setVoteQuorum(int voteQuorum);
+
+    int getMaxSampleStride();
+
+    /**
+     * @param maxSampleStride largest sampling stride once a reading is stable, 1 to recognize every frame
+     */
+    void setMaxSampleStride(int maxSampleStride);
+
+    String getThresholdMode();
+
+    /**
+     * @param thresholdMode name of a threshold mode (static, otsu, tiled), case insensitive
+     */
+    void setThresholdMode(String thresholdMode);
+
+    double getThreshold1();
+
+    void setThreshold1(double threshold1);
+
+    double getThreshold2();
+
+    void setThreshold2(double threshold2);
+
+    int getKernelSize();
+
+    void setKernelSize(int kernelSize);
+
+    int getBlurSize();
+
+    /**
+     * @param blurSize gaussian blur before the threshold, 0 or 1 for none
+     */
+    void setBlurSize(int blurSize);
+
+    String getEngine();
+
+    /**
+     * @param engine name of an engine type, case insensitive
+     */
+    void setEngine(String engine);
+
+    double getRecognitionRate();
+
+    void setRecognitionRate(double recognitionRate);
+
+    /**
+     * Forget the latency figures of the running pipeline
+     */
+    void resetLatencies();
+}
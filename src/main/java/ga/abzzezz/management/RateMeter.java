@@ -0,0 +1,54 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.management;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Rate of a growing counter, measured between reads without locking.
+ * A new rate is only computed once the last sample is old enough, so frequent reads return the same value
+ */
+class RateMeter {
+    /**
+     * Shortest time between two samples (ns)
+     */
+    private static final long MIN_INTERVAL = 500_000_000L;
+
+    private final AtomicReference<Sample> last;
+
+    /**
+     * @param count counter value to measure from
+     */
+    RateMeter(final long count) {
+        last = new AtomicReference<>(new Sample(System.nanoTime(), count, 0));
+    }
+
+    /**
+     * @param count current counter value
+     * @return counts per second
+     */
+    double rate(final long count) {
+        final long now = System.nanoTime();
+        final Sample previous = last.get();
+        if (now - previous.nanos < MIN_INTERVAL) return previous.rate;
+        final Sample next = new Sample(now, count, (count - previous.count) / ((now - previous.nanos) / 1e9));
+        /* If another reader won, its sample is just as recent */
+        return last.compareAndSet(previous, next) ? next.rate : last.get().rate;
+    }
+
+    private static final class Sample {
+        private final long nanos, count;
+        private final double rate;
+
+        private Sample(final long nanos, final long count, final double rate) {
+            this.nanos = nanos;
+            this.count = count;
+            this.rate = rate;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.management;
+
+import com.fazecast.jSerialComm.SerialPort;
+import ga.abzzezz.Singleton;
+import ga.abzzezz.serial.SerialHandler;
+
+/**
+ * Exposes the {@link SerialHandler}
+ */
+public class Serial implements SerialMXBean {
+
+    private SerialHandler handler() {
+        return Singleton.INSTANCE.getSerialHandler();
+    }
+
+    @Override
+    public String getPortName() {
+        return handler().getSerialPort().map(SerialPort::getSystemPortName).orElse("");
+    }
+
+    @Override
+    public boolean isPortOpen() {
+        return handler().getSerialPort().map(SerialPort::isOpen).orElse(false);
+    }
+
+    @Override
+    public long getCommandsSent() {
+        return handler().getCommandsSent();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return handler().getBytesSent();
+    }
+
+    @Override
+    public long getFailedWrites() {
+        return handler().getFailedWrites();
+    }
+
+    @Override
+    public double getWriteP50Millis() {
+        return handler().getWriteLatency().getPercentile(0.5) / 1e6;
+    }
+
+    @Override
+    public double getWriteP99Millis() {
+        return handler().getWriteLatency().getPercentile(0.99) / 1e6;
+    }
+
+    @Override
+    public double getWriteMaxMillis() {
+        return handler().getWriteLatency().getMax() / 1e6;
+    }
+}
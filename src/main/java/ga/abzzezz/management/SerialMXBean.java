@@ -0,0 +1,32 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.management;
+
+/**
+ * State of the serial connection to the single board computer
+ */
+public interface SerialMXBean {
+    /**
+     * @return system name of the selected port, empty if none is selected
+     */
+    String getPortName();
+
+    boolean isPortOpen();
+
+    long getCommandsSent();
+
+    long getBytesSent();
+
+    long getFailedWrites();
+
+    double getWriteP50Millis();
+
+    double getWriteP99Millis();
+
+    double getWriteMaxMillis();
+}
@@ -0,0 +1,64 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.management;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Figures of one pipeline stage, as exposed over JMX
+ */
+public class StageInfo {
+    private final String name;
+    private final double fps, p50Millis, p99Millis, maxMillis;
+    private final long processed, dropped;
+    private final int queueDepth;
+
+    @ConstructorProperties({"name", "fps", "p50Millis", "p99Millis", "maxMillis", "processed", "dropped", "queueDepth"})
+    public StageInfo(final String name, final double fps, final double p50Millis, final double p99Millis, final double maxMillis, final long processed, final long dropped, final int queueDepth) {
+        this.name = name;
+        this.fps = fps;
+        this.p50Millis = p50Millis;
+        this.p99Millis = p99Millis;
+        this.maxMillis = maxMillis;
+        this.processed = processed;
+        this.dropped = dropped;
+        this.queueDepth = queueDepth;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getFps() {
+        return fps;
+    }
+
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets: every power of two is split into 16 buckets,
+ * so percentiles are off by at most about 6%. Recording is a bucket increment and a sum addition,
+ * plus a compare-and-set if the value is a new maximum. Reads are not atomic across buckets,
+ * which only matters for values recorded while reading
+ */
+public class LatencyHistogram {
+    /**
+     * Buckets per power of two, as a number of bits
+     */
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    /**
+     * Enough buckets for any positive long
+     */
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a latency
+     *
+     * @param nanos latency (ns), negative values count as 0
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucket(value));
+        sum.add(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) ;
+    }
+
+    private static int bucket(final long value) {
+        final int magnitude = 63 - Long.numberOfLeadingZeros(value | 1);
+        if (magnitude < SUB_BITS) return (int) value;
+        final int shift = magnitude - SUB_BITS;
+        return (shift + 1) * SUB_COUNT + (int) ((value >>> shift) & (SUB_COUNT - 1));
+    }
+
+    /**
+     * @return smallest value of a bucket
+     */
+    private static long lowerBound(final int bucket) {
+        if (bucket < SUB_COUNT) return bucket;
+        final int shift = bucket / SUB_COUNT - 1;
+        return (long) (SUB_COUNT + bucket % SUB_COUNT) << shift;
+    }
+
+    /**
+     * @return number of recorded values
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) count += counts.get(i);
+        return count;
+    }
+
+    /**
+     * Value below which a share of the recorded values lie
+     *
+     * @param percentile share between 0 and 1, e.g. 0.99
+     * @return latency (ns), middle of the bucket holding the percentile. 0 if nothing was recorded
+     */
+    public long getPercentile(final double percentile) {
+        final long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) total += snapshot[i] = counts.get(i);
+        if (total == 0) return 0;
+        final long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                final long lower = lowerBound(i), upper = i + 1 < BUCKETS ? lowerBound(i + 1) : Long.MAX_VALUE;
+                return Math.min(lower + (upper - lower) / 2, getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * @return largest recorded latency (ns)
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return mean latency (ns), 0 if nothing was recorded
+     */
+    public double getMean() {
+        final long count = getCount();
+        return count == 0 ? 0 : sum.sum() / (double) count;
+    }
+
+    /**
+     * Forget all recorded values. Values recorded meanwhile may be lost or only partly cleared
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        sum.reset();
+        max.set(0);
+    }
+
+    /**
+     * @return p50, p99 and max in ms
+     */
+    @Override
+    public String toString() {
+        return String.format("p50 %.2f ms, p99 %.2f ms, max %.2f ms", getPercentile(0.5) / 1e6, getPercentile(0.99) / 1e6, getMax() / 1e6);
+    }
+}
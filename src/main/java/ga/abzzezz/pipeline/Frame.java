@@ -0,0 +1,159 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.pipeline;
+
+import ga.abzzezz.image.NativeMemoryCounter;
+import ga.abzzezz.image.ProcessingParameters;
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Pooled frame passed between pipeline stages.
+ * The mats are reused for every frame the object carries, so they are only reallocated if the geometry changes.
+ */
+public class Frame {
+    /**
+     * Grabbed camera frame
+     */
+    private final Mat raw = new Mat();
+    /**
+     * Preview of the processed frame
+     */
+    private final Mat preview = new Mat();
+    /**
+     * Processed regions, one per roi. Mats are kept when the count shrinks, so they can be reused
+     */
+    private final List<Mat> regions = new ArrayList<>();
+    private int regionCount;
+    /**
+     * Names of the regions, shared and never modified
+     */
+    private List<String> regionNames = Collections.emptyList();
+    /**
+     * Parameters the frame was processed with, so it is recognized with the same config
+     */
+    private ProcessingParameters parameters = ProcessingParameters.DEFAULT;
+    /**
+     * Data addresses of the mats, to count reallocations
+     */
+    private long rawAddress, previewAddress;
+    /**
+     * Sequence number assigned by the grab stage
+     */
+    private long sequence;
+    /**
+     * Time the frame was taken at (ms): wall clock time for live frames, recorded time for replayed ones
+     */
+    private long timestamp;
+    /**
+     * Monotonic time the frame was grabbed at (ns)
+     */
+    private long grabNanos;
+
+    /**
+     * Stamp the frame when it is grabbed
+     *
+     * @param sequence  sequence number
+     * @param timestamp time the frame was taken at, as reported by its source (ms)
+     */
+    void stamp(final long sequence, final long timestamp) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.grabNanos = System.nanoTime();
+    }
+
+    /**
+     * Copy the metadata and the processed regions to another frame
+     *
+     * @param other frame to copy to
+     */
+    void copyRegionsTo(final Frame other) {
+        other.sequence = sequence;
+        other.timestamp = timestamp;
+        other.grabNanos = grabNanos;
+        other.parameters = parameters;
+        other.setRegionCount(regionCount, regionNames);
+        for (int i = 0; i < regionCount; i++) regions.get(i).copyTo(other.getRegion(i));
+    }
+
+    /**
+     * Set how many regions the frame carries
+     *
+     * @param count number of regions
+     * @param names region names, one per region
+     */
+    public void setRegionCount(final int count, final List<String> names) {
+        while (regions.size() < count) regions.add(new Mat());
+        this.regionCount = count;
+        this.regionNames = names;
+    }
+
+    /**
+     * Count reallocations of the frame's mats
+     */
+    void track() {
+        rawAddress = NativeMemoryCounter.track(raw, rawAddress);
+        previewAddress = NativeMemoryCounter.track(preview, previewAddress);
+    }
+
+    public Mat getRaw() {
+        return raw;
+    }
+
+    public Mat getPreview() {
+        return preview;
+    }
+
+    /**
+     * @param index region index
+     * @return processed region
+     */
+    public Mat getRegion(final int index) {
+        return regions.get(index);
+    }
+
+    public int getRegionCount() {
+        return regionCount;
+    }
+
+    public List<String> getRegionNames() {
+        return regionNames;
+    }
+
+    public ProcessingParameters getParameters() {
+        return parameters;
+    }
+
+    public void setParameters(final ProcessingParameters parameters) {
+        this.parameters = parameters;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getGrabNanos() {
+        return grabNanos;
+    }
+
+    /**
+     * Release the native memory of all mats
+     */
+    void release() {
+        raw.release();
+        preview.release();
+        for (final Mat region : regions) region.release();
+    }
+}
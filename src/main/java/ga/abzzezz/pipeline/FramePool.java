@@ -0,0 +1,80 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.pipeline;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Fixed set of frames shared by all stages. Frames are taken from the pool, passed along and given back at the end
+ */
+public class FramePool {
+    private final BlockingQueue<Frame> free;
+    private final Frame[] frames;
+
+    /**
+     * @param size number of frames, has to cover every queue slot plus the frames being worked on
+     */
+    public FramePool(final int size) {
+        this.free = new ArrayBlockingQueue<>(size);
+        this.frames = new Frame[size];
+        for (int i = 0; i < size; i++) {
+            frames[i] = new Frame();
+            free.add(frames[i]);
+        }
+    }
+
+    /**
+     * Take a frame, blocking until one is free
+     *
+     * @return free frame
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Frame acquire() throws InterruptedException {
+        return free.take();
+    }
+
+    /**
+     * Take a frame if one is free
+     *
+     * @return free frame or null
+     */
+    public Frame tryAcquire() {
+        return free.poll();
+    }
+
+    /**
+     * Give a frame back
+     *
+     * @param frame frame no longer in use
+     */
+    public void release(final Frame frame) {
+        free.offer(frame);
+    }
+
+    /**
+     * @return number of frames in the pool
+     */
+    public int getSize() {
+        return frames.length;
+    }
+
+    /**
+     * @return number of frames currently free
+     */
+    public int getAvailable() {
+        return free.size();
+    }
+
+    /**
+     * Release the native memory of all frames. Only call once no stage is running
+     */
+    public void dispose() {
+        for (final Frame frame : frames) frame.release();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.pipeline;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Bounded queue between two stages. What happens when it is full is decided by its overflow policy.
+ * Dropped frames are given back to the pool.
+ */
+public class FrameQueue {
+    private final BlockingQueue<Frame> queue;
+    private final OverflowPolicy policy;
+    private final FramePool pool;
+    /**
+     * Number of frames dropped because the queue was full
+     */
+    private final LongAdder dropped = new LongAdder();
+    /**
+     * Told about every dropped frame before it goes back to the pool
+     */
+    private final Consumer<Frame> onDrop;
+
+    public FrameQueue(final int capacity, final OverflowPolicy policy, final FramePool pool) {
+        this(capacity, policy, pool, frame -> {
+        });
+    }
+
+    /**
+     * @param capacity max number of queued frames
+     * @param policy   what to do when the queue is full
+     * @param pool     pool dropped frames go back to
+     * @param onDrop   told about every dropped frame before it goes back to the pool
+     */
+    public FrameQueue(final int capacity, final OverflowPolicy policy, final FramePool pool, final Consumer<Frame> onDrop) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.policy = policy;
+        this.pool = pool;
+        this.onDrop = onDrop;
+    }
+
+    /**
+     * Offer a frame according to the overflow policy
+     *
+     * @param frame frame to queue
+     * @throws InterruptedException if interrupted while blocking
+     */
+    public void offer(final Frame frame) throws InterruptedException {
+        switch (policy) {
+            case BLOCK:
+                queue.put(frame);
+                break;
+            case DROP_NEWEST:
+                if (!queue.offer(frame)) drop(frame);
+                break;
+            case DROP_OLDEST:
+            default:
+                while (!queue.offer(frame)) {
+                    final Frame oldest = queue.poll();
+                    if (oldest != null) drop(oldest);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Wait for the next frame
+     *
+     * @param timeout max time to wait in ms
+     * @return frame or null if none arrived in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Frame poll(final long timeout) throws InterruptedException {
+        return queue.poll(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Give all queued frames back to the pool
+     */
+    public void clear() {
+        Frame frame;
+        while ((frame = queue.poll()) != null) pool.release(frame);
+    }
+
+    private void drop(final Frame frame) {
+        dropped.increment();
+        onDrop.accept(frame);
+        pool.release(frame);
+    }
+
+    /**
+     * @return number of frames currently queued
+     */
+    public int getDepth() {
+        return queue.size();
+    }
+
+    public int getCapacity() {
+        return queue.size() + queue.remainingCapacity();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.pipeline;
+
+import ga.abzzezz.image.ProcessingParameters;
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reference-counted copy of a processed frame's regions, published by the pipeline for on-demand analysis.
+ * A snapshot does not change while it is retained; readers must not modify its mats and have to release it when done.
+ * Once the last reference is released, the snapshot goes back to its publisher to be refilled
+ */
+public class FrameSnapshot {
+    private final SnapshotPublisher publisher;
+    private final AtomicInteger references = new AtomicInteger();
+    private final List<Mat> regions = new ArrayList<>();
+    private int regionCount;
+    private List<String> regionNames = Collections.emptyList();
+    private long sequence, timestamp;
+    private ProcessingParameters parameters = ProcessingParameters.DEFAULT;
+
+    FrameSnapshot(final SnapshotPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    /**
+     * Fill the snapshot from a frame. Only called by the publisher while no one holds a reference
+     *
+     * @param frame processed frame
+     */
+    void fill(final Frame frame) {
+        while (regions.size() < frame.getRegionCount()) regions.add(new Mat());
+        for (int i = 0; i < frame.getRegionCount(); i++) frame.getRegion(i).copyTo(regions.get(i));
+        this.regionCount = frame.getRegionCount();
+        this.regionNames = frame.getRegionNames();
+        this.sequence = frame.getSequence();
+        this.timestamp = frame.getTimestamp();
+        this.parameters = frame.getParameters();
+        references.set(1);
+    }
+
+    /**
+     * Take a reference. Fails if the snapshot was released in the meantime
+     *
+     * @return true if the snapshot is retained and has to be released
+     */
+    public boolean retain() {
+        int current;
+        do {
+            current = references.get();
+            if (current <= 0) return false;
+        } while (!references.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Give a reference back. The last one returns the snapshot to its publisher
+     */
+    public void release() {
+        if (references.decrementAndGet() == 0) publisher.recycle(this);
+    }
+
+    /**
+     * Release the native memory, once the snapshot will not be used again
+     */
+    void dispose() {
+        for (final Mat region : regions) region.release();
+        regions.clear();
+        regionCount = 0;
+    }
+
+    /**
+     * @param index region index
+     * @return processed region, must not be modified
+     */
+    public Mat getRegion(final int index) {
+        return regions.get(index);
+    }
+
+    public int getRegionCount() {
+        return regionCount;
+    }
+
+    public List<String> getRegionNames() {
+        return regionNames;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return parameters the frame was processed with
+     */
+    public ProcessingParameters getParameters() {
+        return parameters;
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.pipeline;
+
+/**
+ * What a stage queue does when a frame is offered while it is full
+ */
+public enum OverflowPolicy {
+    /**
+     * Drop the oldest queued frame to make room, the consumer always sees the newest frames
+     */
+    DROP_OLDEST,
+    /**
+     * Drop the offered frame, queued frames are kept
+     */
+    DROP_NEWEST,
+    /**
+     * Block the producer until there is room. Slow stages slow down everything before them
+     */
+    BLOCK
+}
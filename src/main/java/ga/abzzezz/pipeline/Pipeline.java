@@ -0,0 +1,295 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.pipeline;
+
+import ga.abzzezz.metrics.LatencyHistogram;
+import ga.abzzezz.source.FrameRecorder;
+import ga.abzzezz.source.FrameSource;
+import ga.abzzezz.util.QuickLog;
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Staged capture pipeline: grab, preprocess, recognize and publish, each on a dedicated thread.
+ * Stages are connected by bounded queues, so a slow stage only loses frames instead of stalling the ones before it
+ * (unless the overflow policy is {@link OverflowPolicy#BLOCK}).
+ * <p>
+ * The preprocess stage hands its result to both the recognize and the publish stage,
+ * so the preview keeps up with the camera even if recognition is slower.
+ * Frames may be recognized concurrently, their results are emitted one at a time in frame order.
+ */
+public class Pipeline {
+    /**
+     * Frames in flight per stage plus spare frames, added on top of the queue capacities when sizing the pool
+     */
+    private static final int FRAMES_IN_FLIGHT = 6;
+
+    private final FrameSource source;
+    private final FramePool pool;
+    private final FrameQueue preprocessQueue, recognizeQueue, publishQueue;
+    private final List<Stage> stages = new ArrayList<>();
+    /**
+     * Latest processed frame, for on-demand analysis
+     */
+    private final SnapshotPublisher snapshots = new SnapshotPublisher();
+    /**
+     * Emits the results of the recognize stage in frame order
+     */
+    private final ResultSequencer results = new ResultSequencer();
+    /**
+     * Frames not handed to recognition because no pooled frame was free
+     */
+    private final LongAdder recognitionSkipped = new LongAdder();
+    /**
+     * Time from grabbing a frame to having it recognized
+     */
+    private final LatencyHistogram recognitionLatency = new LatencyHistogram();
+    /**
+     * Whether preprocessed frames are passed to the recognize stage
+     */
+    private volatile boolean recognitionEnabled;
+    /**
+     * Set to hand the next frame to recognition once, even if recognition is disabled
+     */
+    private final AtomicBoolean recognitionRequested = new AtomicBoolean();
+    /**
+     * Minimum time between two frames handed to recognition (ns), 0 for every frame
+     */
+    private volatile long recognitionInterval;
+    /**
+     * Grab time of the frame last handed to recognition (ns)
+     */
+    private long lastRecognition = System.nanoTime() - TimeUnit.HOURS.toNanos(1);
+    private long sequence;
+    /**
+     * Records grabbed frames, null if not recording
+     */
+    private volatile FrameRecorder recorder;
+
+    /**
+     * @param source       source to read frames from, the pipeline stops grabbing once it runs dry. Closed once the pipeline stopped
+     * @param preprocessor processes a grabbed frame
+     * @param recognizer   recognizes a processed frame, its results are emitted in frame order
+     * @param display      displays a processed frame, null to run without a view
+     * @param capacity     capacity of each queue
+     * @param policy       overflow policy of each queue
+     * @param recognizers  number of threads recognizing frames concurrently, the recognizer has to be thread-safe if more than one
+     */
+    public Pipeline(final FrameSource source, final Preprocessor preprocessor, final Recognizer recognizer, final Display display, final int capacity, final OverflowPolicy policy, final int recognizers) {
+        this.source = source;
+        this.pool = new FramePool(capacity * 3 + FRAMES_IN_FLIGHT + recognizers);
+        this.preprocessQueue = new FrameQueue(capacity, policy, pool);
+        this.recognizeQueue = new FrameQueue(capacity, policy, pool, frame -> results.cancel(frame.getSequence()));
+        this.publishQueue = display == null ? null : new FrameQueue(capacity, policy, pool);
+
+        stages.add(new Stage("grab", null, preprocessQueue, pool, frame -> {
+            if (!source.read(frame.getRaw())) return false;
+            frame.stamp(sequence++, source.getTimestamp());
+            final FrameRecorder current = recorder;
+            if (current != null) current.record(frame.getRaw(), frame.getTimestamp());
+            return true;
+        }));
+        stages.add(new Stage("preprocess", preprocessQueue, publishQueue, pool, frame -> {
+            preprocessor.process(frame, display != null);
+            snapshots.publish(frame);
+            final boolean requested = recognitionRequested.get() && recognitionRequested.compareAndSet(true, false);
+            if (requested || recognitionEnabled && frame.getGrabNanos() - lastRecognition >= recognitionInterval) {
+                final Frame recognitionFrame = pool.tryAcquire();
+                if (recognitionFrame != null) {
+                    frame.copyRegionsTo(recognitionFrame);
+                    results.register(frame.getSequence());
+                    try {
+                        recognizeQueue.offer(recognitionFrame);
+                    } catch (final InterruptedException e) {
+                        results.cancel(frame.getSequence());
+                        pool.release(recognitionFrame);
+                        throw e;
+                    }
+                    lastRecognition = frame.getGrabNanos();
+                } else {
+                    recognitionSkipped.increment();
+                    if (requested) recognitionRequested.set(true);
+                }
+            }
+            frame.track();
+            return display != null;
+        }));
+        stages.add(new Stage("recognize", recognizeQueue, null, pool, frame -> {
+            Runnable result = null;
+            try {
+                result = recognizer.recognize(frame);
+                recognitionLatency.record(System.nanoTime() - frame.getGrabNanos());
+            } finally {
+                results.complete(frame.getSequence(), result);
+            }
+            return false;
+        }, recognizers));
+        if (display != null) {
+            stages.add(new Stage("publish", publishQueue, null, pool, frame -> {
+                display.display(frame.getPreview());
+                return false;
+            }));
+        }
+    }
+
+    /**
+     * Start all stages, last one first so consumers are ready before frames arrive
+     */
+    public void start() {
+        for (int i = stages.size() - 1; i >= 0; i--) stages.get(i).start();
+    }
+
+    /**
+     * Stop all stages, first one first, then release the pooled frames and close the source.
+     * If a stage thread is still busy (stuck in a native call), the frames and the source are released once it finished
+     */
+    public void stop() {
+        boolean stopped = true;
+        for (final Stage stage : stages) stopped &= stage.stop();
+        preprocessQueue.clear();
+        recognizeQueue.clear();
+        if (publishQueue != null) publishQueue.clear();
+        results.clear();
+        if (stopped) {
+            dispose();
+            return;
+        }
+        QuickLog.log("Pipeline stage still busy, releasing its frames and source once it finished", QuickLog.LogType.WARNING);
+        final Thread disposer = new Thread(() -> {
+            try {
+                for (final Stage stage : stages) stage.awaitStopped();
+            } catch (final InterruptedException e) {
+                QuickLog.log("Pipeline frames and source not released", QuickLog.LogType.WARNING);
+                return;
+            }
+            dispose();
+        }, "pipeline-dispose");
+        disposer.setDaemon(true);
+        disposer.start();
+    }
+
+    /**
+     * Release the pooled frames and the snapshots and close the source. Only once no stage thread is running
+     */
+    private void dispose() {
+        pool.dispose();
+        snapshots.dispose();
+        source.close();
+    }
+
+    /**
+     * @return true while the grab stage is still receiving frames
+     */
+    public boolean isRunning() {
+        return stages.get(0).isRunning();
+    }
+
+    /**
+     * @return true once the source ran dry and every frame went through all stages
+     */
+    public boolean isIdle() {
+        return !isRunning() && pool.getAvailable() == pool.getSize();
+    }
+
+    /**
+     * @return all stages in order
+     */
+    public List<Stage> getStages() {
+        return Collections.unmodifiableList(stages);
+    }
+
+    public long getRecognitionSkipped() {
+        return recognitionSkipped.sum();
+    }
+
+    /**
+     * @return time from grabbing a frame to having it recognized
+     */
+    public LatencyHistogram getRecognitionLatency() {
+        return recognitionLatency;
+    }
+
+    /**
+     * Record every grabbed frame from now on. The grab stage copies each frame into the recorder's mapping
+     *
+     * @param recorder recorder, null to stop recording. Closing it is up to the caller
+     */
+    public void setRecorder(final FrameRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    public boolean isRecognitionEnabled() {
+        return recognitionEnabled;
+    }
+
+    public void setRecognitionEnabled(final boolean recognitionEnabled) {
+        this.recognitionEnabled = recognitionEnabled;
+    }
+
+    /**
+     * Retain the latest processed frame. Safe to call from any thread while the pipeline runs
+     *
+     * @return snapshot of the latest frame, has to be released. Null if no frame was processed yet
+     */
+    public FrameSnapshot acquireSnapshot() {
+        return snapshots.acquire();
+    }
+
+    /**
+     * Hand the next processed frame to recognition, whether recognition is enabled or not
+     */
+    public void requestRecognition() {
+        recognitionRequested.set(true);
+    }
+
+    /**
+     * Set the target number of frames handed to recognition per second
+     *
+     * @param rate frames per second, 0 for every frame
+     */
+    public void setRecognitionRate(final double rate) {
+        this.recognitionInterval = rate <= 0 ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+    }
+
+    /**
+     * Processes a grabbed frame
+     */
+    public interface Preprocessor {
+        /**
+         * Process the frame's raw mat into its regions (and preview)
+         *
+         * @param frame   grabbed frame
+         * @param preview whether the frame's preview has to be rendered
+         */
+        void process(Frame frame, boolean preview);
+    }
+
+    /**
+     * Recognizes text in a processed frame, possibly on several threads at once
+     */
+    public interface Recognizer {
+        /**
+         * @param frame processed frame
+         * @return emits the frame's result, run once the results of all earlier frames were emitted. Null if there is none
+         */
+        Runnable recognize(Frame frame);
+    }
+
+    /**
+     * Displays a processed frame
+     */
+    public interface Display {
+        void display(Mat mat);
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.pipeline;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Text summary of a pipeline for display: per stage the frame rate, latency percentiles, drops and queue depth,
+ * then the time from grab to recognized. Frame rates are measured between two calls
+ */
+public class PipelineStats {
+    /**
+     * Frames each stage had processed at the last call
+     */
+    private final Map<Stage, Long> lastProcessed = new HashMap<>();
+    private Pipeline lastPipeline;
+    private long lastNanos;
+
+    /**
+     * @param pipeline running pipeline
+     * @return summary, one line per stage and one for recognition
+     */
+    public String describe(final Pipeline pipeline) {
+        if (pipeline != lastPipeline) {
+            lastProcessed.clear();
+            lastPipeline = pipeline;
+        }
+        final long now = System.nanoTime();
+        final double seconds = (now - lastNanos) / 1e9;
+        lastNanos = now;
+
+        final StringBuilder text = new StringBuilder();
+        for (final Stage stage : pipeline.getStages()) {
+            final long processed = stage.getProcessed();
+            final Long before = lastProcessed.put(stage, processed);
+            final double fps = before == null ? 0 : (processed - before) / seconds;
+            text.append(String.format("%-10s %5.1f fps  %s  dropped %d  queue %d%n", stage.getName(), fps, stage.getLatency(), stage.getDropped(), stage.getQueueDepth()));
+        }
+        text.append(String.format("%-10s %9s  %s  skipped %d", "total", "", pipeline.getRecognitionLatency(), pipeline.getRecognitionSkipped()));
+        return text.toString();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.pipeline;
+
+import ga.abzzezz.util.QuickLog;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Puts the results of frames recognized concurrently back into frame order.
+ * Frames are registered in sequence order when they are handed to recognition; a finished frame's result is emitted
+ * once every frame registered before it finished or was dropped. Results are emitted one at a time,
+ * by the thread that finished the oldest pending frame, so listeners never see two results at once or out of order
+ */
+public class ResultSequencer {
+    private static final Runnable NOTHING = () -> {
+    };
+
+    /**
+     * Sequences of the frames handed to recognition and not emitted yet, oldest first
+     */
+    private final Deque<Long> pending = new ArrayDeque<>();
+    /**
+     * Results of finished frames waiting for older ones, by sequence
+     */
+    private final Map<Long, Runnable> finished = new HashMap<>();
+
+    /**
+     * Register a frame handed to recognition. Has to be called in sequence order
+     *
+     * @param sequence frame sequence number
+     */
+    public synchronized void register(final long sequence) {
+        pending.addLast(sequence);
+    }
+
+    /**
+     * Drop a registered frame that will never be recognized
+     *
+     * @param sequence frame sequence number
+     */
+    public synchronized void cancel(final long sequence) {
+        pending.remove(sequence);
+        emitReady();
+    }
+
+    /**
+     * Hand in the result of a recognized frame and emit all results that are in order now
+     *
+     * @param sequence frame sequence number
+     * @param result   emits the frame's result, null if there is nothing to emit
+     */
+    public synchronized void complete(final long sequence, final Runnable result) {
+        finished.put(sequence, result == null ? NOTHING : result);
+        emitReady();
+    }
+
+    private void emitReady() {
+        Long oldest;
+        while ((oldest = pending.peekFirst()) != null) {
+            final Runnable result = finished.remove(oldest);
+            if (result == null) return;
+            pending.removeFirst();
+            try {
+                result.run();
+            } catch (final RuntimeException e) {
+                QuickLog.log("Emitting the result of frame " + oldest + " failed", QuickLog.LogType.ERROR);
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Forget all pending frames and results
+     */
+    public synchronized void clear() {
+        pending.clear();
+        finished.clear();
+    }
+}
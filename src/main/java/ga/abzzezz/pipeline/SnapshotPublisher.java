@@ -0,0 +1,69 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.pipeline;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publishes the latest processed frame as a {@link FrameSnapshot}.
+ * Released snapshots are refilled instead of reallocated, so publishing every frame does not allocate in a steady state.
+ * A reader that retains a snapshot just as it is recycled may end up with a newer frame, never with a partly filled one,
+ * since a snapshot can only be retained once it is filled
+ */
+public class SnapshotPublisher {
+    private final AtomicReference<FrameSnapshot> latest = new AtomicReference<>();
+    private final Queue<FrameSnapshot> free = new ConcurrentLinkedQueue<>();
+    private volatile boolean disposed;
+
+    /**
+     * Publish a frame, replacing the previous snapshot
+     *
+     * @param frame processed frame
+     */
+    public void publish(final Frame frame) {
+        FrameSnapshot snapshot = free.poll();
+        if (snapshot == null) snapshot = new FrameSnapshot(this);
+        snapshot.fill(frame);
+        final FrameSnapshot previous = latest.getAndSet(snapshot);
+        if (previous != null) previous.release();
+    }
+
+    /**
+     * Retain the latest snapshot
+     *
+     * @return latest snapshot, has to be released. Null if nothing was published yet
+     */
+    public FrameSnapshot acquire() {
+        while (true) {
+            final FrameSnapshot snapshot = latest.get();
+            if (snapshot == null) return null;
+            if (snapshot.retain()) return snapshot;
+        }
+    }
+
+    /**
+     * Take back a snapshot whose last reference was released
+     */
+    void recycle(final FrameSnapshot snapshot) {
+        if (disposed) snapshot.dispose();
+        else free.offer(snapshot);
+    }
+
+    /**
+     * Drop the latest snapshot and release all free ones. Snapshots still retained are released by their last reader
+     */
+    public void dispose() {
+        disposed = true;
+        final FrameSnapshot previous = latest.getAndSet(null);
+        if (previous != null) previous.release();
+        FrameSnapshot snapshot;
+        while ((snapshot = free.poll()) != null) snapshot.dispose();
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.pipeline;
+
+import ga.abzzezz.metrics.LatencyHistogram;
+import ga.abzzezz.util.QuickLog;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One pipeline stage running on its own thread (or several threads sharing one input queue).
+ * Takes frames from its input queue (or from the pool if it is the first stage), runs its task and passes them on.
+ * Frames that are not passed on are given back to the pool.
+ */
+public class Stage implements Runnable {
+    /**
+     * How long a stage waits for input before checking if it should stop (ms)
+     */
+    private static final long POLL_TIMEOUT = 100;
+
+    private final String name;
+    private final FrameQueue input, output;
+    private final FramePool pool;
+    private final Task task;
+    private final int threadCount;
+    /**
+     * Number of frames the task ran on
+     */
+    private final LongAdder processed = new LongAdder();
+    /**
+     * Time the task took per frame
+     */
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private volatile boolean running;
+    private Thread[] threads;
+
+    /**
+     * @param name   stage name, used for the thread name
+     * @param input  queue to take frames from, null to take them from the pool (first stage)
+     * @param output queue to pass frames to, null if this is the last stage
+     * @param pool   frame pool
+     * @param task   work to do on each frame
+     */
+    public Stage(final String name, final FrameQueue input, final FrameQueue output, final FramePool pool, final Task task) {
+        this(name, input, output, pool, task, 1);
+    }
+
+    /**
+     * @param name        stage name, used for the thread names
+     * @param input       queue to take frames from, has to be set if more than one thread is used
+     * @param output      queue to pass frames to, null if this is the last stage
+     * @param pool        frame pool
+     * @param task        work to do on each frame, has to be thread-safe if more than one thread is used
+     * @param threadCount number of threads working on the input queue
+     */
+    public Stage(final String name, final FrameQueue input, final FrameQueue output, final FramePool pool, final Task task, final int threadCount) {
+        this.name = name;
+        this.input = input;
+        this.output = output;
+        this.pool = pool;
+        this.task = task;
+        this.threadCount = input == null ? 1 : Math.max(1, threadCount);
+    }
+
+    /**
+     * Start the stage's threads
+     */
+    public void start() {
+        running = true;
+        threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(this, "pipeline-" + name + (threadCount > 1 ? "-" + i : ""));
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            final Frame frame;
+            try {
+                frame = input == null ? pool.acquire() : input.poll(POLL_TIMEOUT);
+            } catch (final InterruptedException e) {
+                break;
+            }
+            if (frame == null) continue;
+
+            try {
+                final long start = System.nanoTime();
+                final boolean forward = task.process(frame);
+                latency.record(System.nanoTime() - start);
+                processed.increment();
+                if (forward && output != null) output.offer(frame);
+                else pool.release(frame);
+                /* The first stage stops once its source runs dry */
+                if (!forward && input == null) running = false;
+            } catch (final InterruptedException e) {
+                pool.release(frame);
+                break;
+            } catch (final RuntimeException e) {
+                pool.release(frame);
+                QuickLog.log("Pipeline stage " + name + " failed on a frame", QuickLog.LogType.ERROR);
+                e.printStackTrace();
+            }
+        }
+        running = false;
+    }
+
+    /**
+     * Stop the stage and wait up to two seconds for each of its threads to finish.
+     * An interrupt can not stop a native call (tesseract), so a thread may still be busy afterwards
+     *
+     * @return true if all threads finished
+     */
+    public boolean stop() {
+        running = false;
+        final Thread[] current = threads;
+        if (current == null) return true;
+        boolean stopped = true;
+        for (final Thread thread : current) {
+            if (thread == Thread.currentThread()) continue;
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(2));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (thread.isAlive()) stopped = false;
+        }
+        return stopped;
+    }
+
+    /**
+     * Wait for the threads of a stopped stage to finish, without a timeout
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitStopped() throws InterruptedException {
+        final Thread[] current = threads;
+        if (current == null) return;
+        for (final Thread thread : current) {
+            if (thread != Thread.currentThread()) thread.join();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return number of frames waiting in front of this stage
+     */
+    public int getQueueDepth() {
+        return input == null ? 0 : input.getDepth();
+    }
+
+    /**
+     * @return number of frames dropped in front of this stage
+     */
+    public long getDropped() {
+        return input == null ? 0 : input.getDropped();
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public long getProcessed() {
+        return processed.sum();
+    }
+
+    /**
+     * @return time the task took per frame
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Work done by a stage
+     */
+    public interface Task {
+        /**
+         * @param frame frame to work on
+         * @return true to pass the frame on, false to give it back to the pool
+         * @throws InterruptedException if interrupted while blocking
+         */
+        boolean process(Frame frame) throws InterruptedException;
+    }
+}
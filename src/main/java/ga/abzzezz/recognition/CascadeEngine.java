@@ -0,0 +1,120 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.recognition;
+
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Runs engines from cheapest to most expensive and stops at the first acceptable reading.
+ * A reading is acceptable if its confidence reaches the minimum and its text matches the pattern (if one is set),
+ * so the expensive engines (tesseract) only run for rois the cheap ones could not read.
+ * If no reading is acceptable, the last engine's reading is returned.
+ */
+public class CascadeEngine implements RecognitionEngine {
+    /**
+     * Pattern for plain numbers, what displays usually show
+     */
+    public static final String NUMBER_PATTERN = "^-?\\d+(\\.\\d+)?$";
+    /**
+     * Default confidence a reading needs to be accepted
+     */
+    public static final float DEFAULT_MIN_CONFIDENCE = 0.7F;
+
+    private final List<RecognitionEngine> engines;
+    private final List<EngineStats> stats = new ArrayList<>();
+    private final float minConfidence;
+    private final Pattern pattern;
+
+    /**
+     * @param engines       engines in the order they are tried
+     * @param minConfidence default confidence a reading needs to be accepted
+     * @param pattern       default pattern a reading has to match to be accepted, null to accept any text
+     */
+    public CascadeEngine(final List<RecognitionEngine> engines, final float minConfidence, final String pattern) {
+        this.engines = Collections.unmodifiableList(new ArrayList<>(engines));
+        for (final RecognitionEngine engine : engines) stats.add(new EngineStats(engine.getName()));
+        this.minConfidence = minConfidence;
+        this.pattern = compile(pattern);
+    }
+
+    @Override
+    public String getName() {
+        return "cascade";
+    }
+
+    @Override
+    public Reading recognize(final Mat roi) {
+        return recognize(roi, minConfidence, pattern);
+    }
+
+    /**
+     * Run the cascade with the acceptance of a config instead of the defaults
+     *
+     * @param roi           roi to recognize
+     * @param minConfidence confidence a reading needs to be accepted
+     * @param pattern       pattern a reading has to match, null to accept any text
+     * @return first acceptable reading, the last engine's otherwise
+     */
+    public Reading recognize(final Mat roi, final float minConfidence, final Pattern pattern) {
+        Reading reading = Reading.EMPTY;
+        for (int i = 0; i < engines.size(); i++) {
+            final long start = System.nanoTime();
+            reading = engines.get(i).recognize(roi);
+            final boolean accepted = isAcceptable(reading, minConfidence, pattern);
+            stats.get(i).record(System.nanoTime() - start, accepted);
+            if (accepted) return reading;
+        }
+        return reading;
+    }
+
+    /**
+     * @param reading       reading to check
+     * @param minConfidence confidence the reading needs
+     * @param pattern       pattern the reading has to match, null to accept any text
+     * @return true if the reading is confident enough and matches the pattern
+     */
+    public static boolean isAcceptable(final Reading reading, final float minConfidence, final Pattern pattern) {
+        if (reading.isEmpty() || reading.getConfidence() < minConfidence) return false;
+        return pattern == null || pattern.matcher(reading.getText().trim()).matches();
+    }
+
+    /**
+     * Estimate the time saved by not running the last engine on every roi,
+     * based on the last engine's mean latency
+     *
+     * @return saved time (ms)
+     */
+    public double getSavedMillis() {
+        final EngineStats first = stats.get(0), last = stats.get(stats.size() - 1);
+        return (first.getCalls() - last.getCalls()) * last.getMeanMillis();
+    }
+
+    /**
+     * @return statistics of every engine, in cascade order
+     */
+    public List<EngineStats> getStats() {
+        return Collections.unmodifiableList(stats);
+    }
+
+    public List<RecognitionEngine> getEngines() {
+        return engines;
+    }
+
+    /**
+     * @param pattern pattern string, null or empty to accept any text
+     * @return compiled pattern, null if any text is accepted
+     */
+    private static Pattern compile(final String pattern) {
+        return pattern == null || pattern.isEmpty() ? null : Pattern.compile(pattern);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.recognition;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cheap change detector in front of the recognition.
+ * Compares a binarized roi against the one last recognized and counts the differing pixels.
+ * If the share of changed pixels stays within the tolerance, the previous reading is reused instead of recognizing again.
+ */
+public class ChangeGate {
+    /**
+     * Last recognized roi and the difference against it
+     */
+    private final Mat reference = new Mat(), difference = new Mat();
+    /**
+     * Reading belonging to the reference and the sequence number of its frame
+     */
+    private Reading lastReading;
+    private long lastSequence = Long.MIN_VALUE;
+    /**
+     * Share of pixels (0 - 1) that may change before the roi counts as changed
+     */
+    private volatile double tolerance;
+    /**
+     * Frames that were / were not recognized
+     */
+    private final LongAdder skipped = new LongAdder(), passed = new LongAdder();
+
+    /**
+     * @param tolerance share of pixels (0 - 1) that may change before the roi counts as changed
+     */
+    public ChangeGate(final double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Check a roi against the last recognized one
+     *
+     * @param roi binarized roi
+     * @return the previous reading if the roi did not change, null if it has to be recognized
+     */
+    public synchronized Reading check(final Mat roi) {
+        if (lastReading != null && reference.size().equals(roi.size()) && reference.type() == roi.type()) {
+            Core.absdiff(roi, reference, difference);
+            if (Core.countNonZero(difference) <= tolerance * roi.total()) {
+                skipped.increment();
+                return lastReading;
+            }
+        }
+        passed.increment();
+        return null;
+    }
+
+    /**
+     * Store a recognized roi as the new reference. Older frames than the current reference are ignored
+     *
+     * @param roi      binarized roi that was recognized
+     * @param reading  its reading
+     * @param sequence frame sequence number
+     */
+    public synchronized void update(final Mat roi, final Reading reading, final long sequence) {
+        if (sequence < lastSequence) return;
+        roi.copyTo(reference);
+        lastReading = reading;
+        lastSequence = sequence;
+    }
+
+    /**
+     * Forget the reference, the next roi is always recognized
+     */
+    public synchronized void reset() {
+        lastReading = null;
+        lastSequence = Long.MIN_VALUE;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public void setTolerance(final double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * @return frames whose previous reading was reused
+     */
+    public long getSkipped() {
+        return skipped.sum();
+    }
+
+    /**
+     * @return frames that had to be recognized
+     */
+    public long getPassed() {
+        return passed.sum();
+    }
+}
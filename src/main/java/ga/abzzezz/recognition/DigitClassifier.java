@@ -0,0 +1,211 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.recognition;
+
+import ga.abzzezz.util.QuickLog;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.ml.KNearest;
+import org.opencv.ml.Ml;
+
+import java.io.File;
+import java.util.Optional;
+
+/**
+ * Reads displays with a k-nearest-neighbour classifier trained from labeled cell crops.
+ * The roi is split into cells like for the seven-segment decoder, every cell is scaled to a small fixed size
+ * and all cells of a roi are classified in one batch. Works for fonts segment sampling can not read (dot matrix etc.),
+ * as long as there are samples for them.
+ * <p>
+ * Samples are stored as pngs in one directory per character, named by the character's code.
+ */
+public class DigitClassifier implements RecognitionEngine {
+    /**
+     * Size cells are scaled to before they are compared
+     */
+    public static final int SAMPLE_WIDTH = 16, SAMPLE_HEIGHT = 24;
+    private static final Size SAMPLE_SIZE = new Size(SAMPLE_WIDTH, SAMPLE_HEIGHT);
+    /**
+     * Neighbours voting on a cell's label
+     */
+    public static final int NEIGHBOURS = 3;
+
+    /**
+     * Trained model, null until trained or loaded
+     */
+    private volatile KNearest model;
+    /**
+     * Per thread: segmenter and mats for the cell crop, the scaled cell, the batch of samples and the results
+     */
+    private final ThreadLocal<DigitSegmenter> segmenter = ThreadLocal.withInitial(DigitSegmenter::new);
+    private final ThreadLocal<Mat[]> buffers = ThreadLocal.withInitial(() -> new Mat[]{new Mat(), new Mat(), new Mat(), new Mat(), new Mat()});
+
+    @Override
+    public String getName() {
+        return "knn";
+    }
+
+    /**
+     * Classify all cells of a roi in one batch. The confidence is the mean share of neighbours agreeing with a cell's label
+     *
+     * @param roi binarized roi
+     * @return reading, empty if there is no model or no cell
+     */
+    @Override
+    public Reading recognize(final Mat roi) {
+        return recognize(roi, model);
+    }
+
+    /**
+     * Classify all cells of a roi with a given model instead of the classifier's own
+     *
+     * @param roi     binarized roi
+     * @param current model to classify with
+     * @return reading, empty if the model is null or there is no cell
+     */
+    public Reading recognize(final Mat roi, final KNearest current) {
+        if (current == null) return Reading.EMPTY;
+        final DigitSegmenter cells = segmenter.get();
+        final int count = cells.segment(roi);
+        if (count == 0) return Reading.EMPTY;
+
+        final Mat[] mats = buffers.get();
+        final Mat cell = mats[0], scaled = mats[1], samples = mats[2], results = mats[3], neighbours = mats[4];
+        samples.create(count, SAMPLE_WIDTH * SAMPLE_HEIGHT, CvType.CV_32F);
+        for (int i = 0; i < count; i++) {
+            cells.copyCell(i, cell);
+            toSample(cell, scaled);
+            final Mat flat = scaled.reshape(1, 1), row = samples.row(i);
+            flat.copyTo(row);
+            flat.release();
+            row.release();
+        }
+        synchronized (current) {
+            current.findNearest(samples, NEIGHBOURS, results, neighbours);
+        }
+
+        final float[] labels = new float[count];
+        final float[] votes = new float[count * NEIGHBOURS];
+        results.get(0, 0, labels);
+        neighbours.get(0, 0, votes);
+        final StringBuilder text = new StringBuilder(count);
+        float confidence = 0;
+        for (int i = 0; i < count; i++) {
+            text.append((char) Math.round(labels[i]));
+            int agreeing = 0;
+            for (int k = 0; k < NEIGHBOURS; k++) {
+                if (votes[i * NEIGHBOURS + k] == labels[i]) agreeing++;
+            }
+            confidence += agreeing / (float) NEIGHBOURS;
+        }
+        return new Reading(text.toString(), confidence / count);
+    }
+
+    /**
+     * Scale a cell crop to the sample size, as floats between 0 and 1. Flattened, it is one sample row
+     *
+     * @param cell cell crop, foreground white
+     * @param dst  mat to write to
+     */
+    private static void toSample(final Mat cell, final Mat dst) {
+        Imgproc.resize(cell, dst, SAMPLE_SIZE, 0, 0, Imgproc.INTER_AREA);
+        dst.convertTo(dst, CvType.CV_32F, 1 / 255.0);
+    }
+
+    /**
+     * Train a new model from a sample directory and replace the current one
+     *
+     * @param sampleDir directory holding one directory of pngs per character code
+     * @return number of samples trained on
+     */
+    public int train(final File sampleDir) {
+        final File[] labelDirs = Optional.ofNullable(sampleDir.listFiles(File::isDirectory)).orElse(new File[0]);
+        final Mat samples = new Mat(), responses = new Mat(), sample = new Mat(), response = new Mat(1, 1, CvType.CV_32F);
+        for (final File labelDir : labelDirs) {
+            final int label;
+            try {
+                label = Integer.parseInt(labelDir.getName());
+            } catch (final NumberFormatException e) {
+                QuickLog.log("Skipping sample directory " + labelDir.getName(), QuickLog.LogType.WARNING);
+                continue;
+            }
+            response.put(0, 0, label);
+            for (final File file : Optional.ofNullable(labelDir.listFiles((dir, name) -> name.endsWith(".png"))).orElse(new File[0])) {
+                final Mat cell = Imgcodecs.imread(file.getAbsolutePath(), Imgcodecs.IMREAD_GRAYSCALE);
+                if (cell.empty()) continue;
+                toSample(cell, sample);
+                final Mat flat = sample.reshape(1, 1);
+                samples.push_back(flat);
+                flat.release();
+                responses.push_back(response);
+                cell.release();
+            }
+        }
+        final int count = samples.rows();
+        if (count > 0) {
+            final KNearest trained = KNearest.create();
+            trained.setDefaultK(NEIGHBOURS);
+            trained.train(samples, Ml.ROW_SAMPLE, responses);
+            model = trained;
+        }
+        samples.release();
+        responses.release();
+        sample.release();
+        response.release();
+        return count;
+    }
+
+    /**
+     * Save the model
+     *
+     * @param file file to save to
+     * @return false if there is no model
+     */
+    public boolean save(final File file) {
+        final KNearest current = model;
+        if (current == null) return false;
+        current.save(file.getAbsolutePath());
+        return true;
+    }
+
+    /**
+     * Load a model, or drop the current one if the file does not exist
+     *
+     * @param file saved model
+     * @return true if a model was loaded
+     */
+    public boolean load(final File file) {
+        model = readModel(file);
+        return model != null;
+    }
+
+    /**
+     * @param file saved model
+     * @return model, null if the file does not exist
+     */
+    public static KNearest readModel(final File file) {
+        return file.isFile() ? KNearest.load(file.getAbsolutePath()) : null;
+    }
+
+    /**
+     * @return trained or loaded model, null if there is none
+     */
+    public KNearest getModel() {
+        return model;
+    }
+
+    /**
+     * @return true if a model is trained or loaded
+     */
+    public boolean isTrained() {
+        return model != null;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.recognition;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+/**
+ * Splits a binarized display roi into character cells by column projection.
+ * The foreground is the minority class, so both dark-on-light and light-on-dark displays work.
+ * Columns containing ink form cells; short gaps inside a digit are bridged.
+ * A segmenter reuses its buffers and must only be used by one thread at a time.
+ */
+public class DigitSegmenter {
+    /**
+     * Most cells a roi is split into, further cells are ignored
+     */
+    public static final int MAX_CELLS = 32;
+
+    private byte[] pixels = new byte[0], cellPixels = new byte[0];
+    private int[] columnInk = new int[0], rowInk = new int[0];
+    private final int[] cellStart = new int[MAX_CELLS], cellEnd = new int[MAX_CELLS];
+    private final int[] cellTop = new int[MAX_CELLS], cellBottom = new int[MAX_CELLS];
+    private int width, height, cells;
+    /**
+     * True if the foreground is white (non-zero) pixels
+     */
+    private boolean foregroundWhite;
+    /**
+     * First and last row containing ink, over the whole roi
+     */
+    private int top, bottom;
+
+    /**
+     * Segment a binarized single channel roi
+     *
+     * @param roi binarized roi (0 / 255)
+     * @return number of cells found
+     */
+    public int segment(final Mat roi) {
+        width = roi.width();
+        height = roi.height();
+        cells = 0;
+        if (width == 0 || height == 0) return 0;
+        final int total = width * height;
+        if (pixels.length < total) pixels = new byte[total];
+        if (columnInk.length < width) columnInk = new int[width];
+        if (rowInk.length < height) rowInk = new int[height];
+        roi.get(0, 0, pixels);
+
+        int white = 0;
+        for (int i = 0; i < total; i++) {
+            if (pixels[i] != 0) white++;
+        }
+        foregroundWhite = white * 2 <= total;
+
+        /* Ink per column and per row */
+        for (int x = 0; x < width; x++) columnInk[x] = 0;
+        for (int y = 0; y < height; y++) {
+            int ink = 0;
+            final int row = y * width;
+            for (int x = 0; x < width; x++) {
+                if (isForeground(pixels[row + x])) {
+                    ink++;
+                    columnInk[x]++;
+                }
+            }
+            rowInk[y] = ink;
+        }
+
+        /* Rows: noise below a pixel or two per row is ignored */
+        final int minRowInk = Math.max(1, width / 64);
+        top = 0;
+        while (top < height && rowInk[top] < minRowInk) top++;
+        bottom = height - 1;
+        while (bottom > top && rowInk[bottom] < minRowInk) bottom--;
+        if (top >= height) return 0;
+
+        /* Columns: a cell is a run of inked columns, gaps up to maxGap are bridged */
+        final int minColumnInk = Math.max(1, height / 24);
+        final int maxGap = Math.max(1, height / 24);
+        int x = 0;
+        while (x < width && cells < MAX_CELLS) {
+            while (x < width && columnInk[x] < minColumnInk) x++;
+            if (x >= width) break;
+            final int start = x;
+            int end = x, gap = 0;
+            while (x < width && gap <= maxGap) {
+                if (columnInk[x] >= minColumnInk) {
+                    end = x;
+                    gap = 0;
+                } else gap++;
+                x++;
+            }
+            cellStart[cells] = start;
+            cellEnd[cells] = end + 1;
+            measureCell(cells);
+            cells++;
+            x = end + 1;
+        }
+        return cells;
+    }
+
+    /**
+     * Find the first and last inked row of a cell
+     */
+    private void measureCell(final int cell) {
+        int first = -1, last = -1;
+        for (int y = top; y <= bottom; y++) {
+            final int row = y * width;
+            for (int x = cellStart[cell]; x < cellEnd[cell]; x++) {
+                if (isForeground(pixels[row + x])) {
+                    if (first < 0) first = y;
+                    last = y;
+                    break;
+                }
+            }
+        }
+        cellTop[cell] = first;
+        cellBottom[cell] = last + 1;
+    }
+
+    private boolean isForeground(final byte pixel) {
+        return (pixel != 0) == foregroundWhite;
+    }
+
+    /**
+     * Fraction of foreground pixels in a rectangle of the last segmented roi
+     *
+     * @param x0 first column
+     * @param y0 first row
+     * @param x1 column after the last
+     * @param y1 row after the last
+     * @return fill between 0 and 1, 0 for an empty rectangle
+     */
+    public float fill(final int x0, final int y0, final int x1, final int y1) {
+        final int left = Math.max(0, x0), right = Math.min(width, x1);
+        final int upper = Math.max(0, y0), lower = Math.min(height, y1);
+        if (right <= left || lower <= upper) return 0;
+        int ink = 0;
+        for (int y = upper; y < lower; y++) {
+            final int row = y * width;
+            for (int x = left; x < right; x++) {
+                if (isForeground(pixels[row + x])) ink++;
+            }
+        }
+        return ink / (float) ((right - left) * (lower - upper));
+    }
+
+    /**
+     * Copy a cell over the full text height into a mat, foreground white on black whatever the display's polarity
+     *
+     * @param cell cell index
+     * @param dst  single channel mat, only reallocated if the cell size changed
+     */
+    public void copyCell(final int cell, final Mat dst) {
+        final int cellWidth = getCellWidth(cell), textHeight = getTextHeight();
+        if (cellPixels.length < cellWidth * textHeight) cellPixels = new byte[cellWidth * textHeight];
+        for (int y = 0; y < textHeight; y++) {
+            final int row = (top + y) * width + cellStart[cell];
+            for (int x = 0; x < cellWidth; x++) cellPixels[y * cellWidth + x] = isForeground(pixels[row + x]) ? (byte) 255 : 0;
+        }
+        dst.create(textHeight, cellWidth, CvType.CV_8UC1);
+        dst.put(0, 0, cellPixels, 0, cellWidth * textHeight);
+    }
+
+    public int getCellStart(final int cell) {
+        return cellStart[cell];
+    }
+
+    public int getCellEnd(final int cell) {
+        return cellEnd[cell];
+    }
+
+    public int getCellWidth(final int cell) {
+        return cellEnd[cell] - cellStart[cell];
+    }
+
+    /**
+     * @return first inked row of the cell
+     */
+    public int getCellTop(final int cell) {
+        return cellTop[cell];
+    }
+
+    /**
+     * @return row after the last inked row of the cell
+     */
+    public int getCellBottom(final int cell) {
+        return cellBottom[cell];
+    }
+
+    /**
+     * @return first inked row of the roi
+     */
+    public int getTop() {
+        return top;
+    }
+
+    /**
+     * @return row after the last inked row of the roi
+     */
+    public int getBottom() {
+        return bottom + 1;
+    }
+
+    /**
+     * @return height of the text (inked rows of the roi)
+     */
+    public int getTextHeight() {
+        return bottom + 1 - top;
+    }
+
+    public int getCellCount() {
+        return cells;
+    }
+}
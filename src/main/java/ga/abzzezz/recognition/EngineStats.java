@@ -0,0 +1,86 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.recognition;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call counts and latencies of one recognition engine
+ */
+public class EngineStats {
+    private final String name;
+    /**
+     * Calls, calls whose reading was accepted and total time spent
+     */
+    private final LongAdder calls = new LongAdder(), accepted = new LongAdder(), totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public EngineStats(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Record a call
+     *
+     * @param nanos    time the call took
+     * @param accepted whether its reading was used
+     */
+    public void record(final long nanos, final boolean accepted) {
+        calls.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        if (accepted) this.accepted.increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    /**
+     * @return fraction of calls whose reading was accepted
+     */
+    public double getHitRate() {
+        final long total = getCalls();
+        return total == 0 ? 0 : getAccepted() / (double) total;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public double getMeanMillis() {
+        final long total = getCalls();
+        return total == 0 ? 0 : getTotalNanos() / (double) total / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public void reset() {
+        calls.reset();
+        accepted.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d calls, %.0f%% accepted, %.3f ms mean, %.3f ms max", name, getCalls(), getHitRate() * 100, getMeanMillis(), getMaxMillis());
+    }
+}
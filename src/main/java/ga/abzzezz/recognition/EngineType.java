@@ -0,0 +1,30 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.recognition;
+
+/**
+ * Recognizer used to read a processed roi, selected per config
+ */
+public enum EngineType {
+    /**
+     * Tesseract with the seven-segment trained data. Slow, but reads anything the trained data covers
+     */
+    TESSERACT,
+    /**
+     * Seven-segment decoder sampling the segments directly. Only reads seven-segment displays, but takes microseconds
+     */
+    SEVEN_SEGMENT,
+    /**
+     * Seven-segment decoder first, tesseract only if the decoder's reading is not confident enough or does not match the config's pattern
+     */
+    CASCADE,
+    /**
+     * Nearest neighbour classifier trained from confirmed readings of the config. Reads fonts the decoder can not
+     */
+    KNN
+}
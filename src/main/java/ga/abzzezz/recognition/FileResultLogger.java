@@ -0,0 +1,39 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.recognition;
+
+import ga.abzzezz.Singleton;
+import ga.abzzezz.util.FileUtil;
+import ga.abzzezz.util.SettingsHolder;
+import org.json.JSONObject;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Appends results to the processed strings file, if logging results to file is enabled
+ */
+public class FileResultLogger implements RecognitionListener {
+    @Override
+    public void onResult(final RecognitionResult result) {
+        if (!SettingsHolder.logResultsToFile || result.isEmpty()) return;
+        FileUtil.writeStringToFile(Singleton.INSTANCE.getProcessedFile(), format(result), true);
+    }
+
+    /**
+     * Format result, so that contains all the information needed and can be read by a extra program
+     */
+    private String format(final RecognitionResult result) {
+        //Format date
+        final SimpleDateFormat formatter = new SimpleDateFormat("dd/MM/yyyy HH:mm:ss");
+        final Date date = new Date(result.getTimestamp());
+        final JSONObject readings = new JSONObject();
+        result.getReadings().forEach((region, reading) -> readings.put(region, new JSONObject().put("guess", reading.getText()).put("confidence", reading.getConfidence())));
+        return new JSONObject().put("date", formatter.format(date)).put("guess", result.getText()).put("confidence", result.getConfidence()).put("profile", result.getProfile()).put("readings", readings).toString();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.recognition;
+
+import org.opencv.core.Mat;
+
+import java.util.Arrays;
+
+/**
+ * Exact key of a processed roi: its size, type and pixels, packed to one bit per pixel if the roi is binary.
+ * Equal keys mean equal pixels, so a cached reading is only reused for the very same roi
+ * (a decimal point or a single segment always changes the key). The 64 bit hash over all pixels only speeds up lookups.
+ * <p>
+ * A key made by {@link #of(Mat)} is a probe: it only points at its thread's pixel buffer, so a lookup copies nothing.
+ * It is valid until the thread hashes the next roi; {@link #stored()} makes the copy a cache entry keeps.
+ */
+public class ImageHash {
+    /**
+     * Pixels of the roi, reused per thread
+     */
+    private static final ThreadLocal<byte[]> PIXELS = ThreadLocal.withInitial(() -> new byte[0]);
+
+    private final int width, height, type, length;
+    private final long hash;
+    private final boolean binary;
+    /**
+     * Probe: the thread's pixel buffer. Stored: pixels packed to bits if the roi is binary, else the pixels themselves
+     */
+    private final byte[] probe;
+    private final long[] bits;
+    private final byte[] pixels;
+
+    private ImageHash(final int width, final int height, final int type, final int length, final long hash, final boolean binary,
+                      final byte[] probe, final long[] bits, final byte[] pixels) {
+        this.width = width;
+        this.height = height;
+        this.type = type;
+        this.length = length;
+        this.hash = hash;
+        this.binary = binary;
+        this.probe = probe;
+        this.bits = bits;
+        this.pixels = pixels;
+    }
+
+    /**
+     * Hash a processed roi
+     *
+     * @param roi roi to hash
+     * @return probe key, valid until the calling thread hashes the next roi
+     */
+    public static ImageHash of(final Mat roi) {
+        final int length = (int) (roi.total() * roi.elemSize());
+        byte[] buffer = PIXELS.get();
+        if (buffer.length < length) {
+            buffer = new byte[length];
+            PIXELS.set(buffer);
+        }
+        if (length > 0) roi.get(0, 0, buffer);
+
+        /* FNV-1a over all pixels */
+        long hash = 0xCBF29CE484222325L;
+        boolean binary = true;
+        for (int i = 0; i < length; i++) {
+            final int value = buffer[i] & 0xFF;
+            hash = (hash ^ value) * 0x100000001B3L;
+            if (value != 0 && value != 0xFF) binary = false;
+        }
+        return new ImageHash(roi.width(), roi.height(), roi.type(), length, hash, binary, buffer, null, null);
+    }
+
+    /**
+     * @return key owning a copy of the pixels, to be kept in a cache
+     */
+    public ImageHash stored() {
+        if (probe == null) return this;
+        if (!binary) return new ImageHash(width, height, type, length, hash, false, null, null, Arrays.copyOf(probe, length));
+        final long[] packed = new long[(length + 63) >> 6];
+        for (int i = 0; i < length; i++) {
+            if (probe[i] != 0) packed[i >> 6] |= 1L << (i & 63);
+        }
+        return new ImageHash(width, height, type, length, hash, true, null, packed, null);
+    }
+
+    private int valueAt(final int index) {
+        if (probe != null) return probe[index] & 0xFF;
+        if (bits != null) return (bits[index >> 6] >>> (index & 63) & 1) == 0 ? 0 : 0xFF;
+        return pixels[index] & 0xFF;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ImageHash)) return false;
+        final ImageHash other = (ImageHash) o;
+        if (hash != other.hash || width != other.width || height != other.height || type != other.type || length != other.length || binary != other.binary)
+            return false;
+        if (probe == null && other.probe == null) return Arrays.equals(bits, other.bits) && Arrays.equals(pixels, other.pixels);
+        for (int i = 0; i < length; i++) {
+            if (valueAt(i) != other.valueAt(i)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Long.hashCode(hash) + width) + height;
+    }
+}
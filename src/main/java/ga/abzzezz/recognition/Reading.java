@@ -0,0 +1,50 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.recognition;
+
+/**
+ * Text read from an image together with how confident the recognizer was
+ */
+public class Reading {
+    /**
+     * Reading with no text, returned if nothing could be recognized
+     */
+    public static final Reading EMPTY = new Reading("", 0);
+
+    private final String text;
+    private final float confidence;
+
+    /**
+     * @param text       recognized text
+     * @param confidence confidence between 0 and 1
+     */
+    public Reading(final String text, final float confidence) {
+        this.text = text;
+        this.confidence = confidence;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return confidence between 0 and 1
+     */
+    public float getConfidence() {
+        return confidence;
+    }
+
+    public boolean isEmpty() {
+        return text.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.recognition;
+
+import org.opencv.core.Mat;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded LRU cache of readings, keyed by config, recognition settings and the exact pixels of the processed roi.
+ * Displays cycle through a small set of values, so the same pixel patterns come back again and again; a hit skips tesseract.
+ * Entries are evicted when the cache is full (least recently used first) or when they are older than the ttl.
+ * Clearing the cache starts a new generation: readings of recognitions that started before are not stored anymore.
+ */
+public class RecognitionCache {
+    private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Key, Entry> eldest) {
+            if (size() <= maxSize) return false;
+            evictions.increment();
+            return true;
+        }
+    };
+    /**
+     * Max number of entries and their time to live (ns)
+     */
+    private volatile int maxSize;
+    private volatile long ttlNanos;
+    /**
+     * Statistics
+     */
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+    /**
+     * Incremented on every clear, keys of an older generation neither hit nor get stored
+     */
+    private volatile long generation;
+
+    /**
+     * @param maxSize    max number of entries
+     * @param ttlSeconds time to live of an entry in seconds
+     */
+    public RecognitionCache(final int maxSize, final long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    /**
+     * Create the key for a roi. It has to be stored before the calling thread creates the next key, see {@link ImageHash#of(Mat)}
+     *
+     * @param profile       config the roi was processed with, may be null
+     * @param engine        engine the roi is recognized with
+     * @param minConfidence confidence a cascade reading needs
+     * @param pattern       pattern a cascade reading has to match, null for any text
+     * @param classifier    knn model, compared by identity. May be null
+     * @param roi           processed roi
+     * @return cache key of the current generation
+     */
+    public Key key(final String profile, final EngineType engine, final float minConfidence, final Pattern pattern, final Object classifier, final Mat roi) {
+        return new Key(generation, profile == null ? "" : profile, engine, minConfidence, pattern == null ? "" : pattern.pattern(), classifier, ImageHash.of(roi));
+    }
+
+    /**
+     * Look up a reading
+     *
+     * @param key key created with {@link #key(String, EngineType, float, Pattern, Object, Mat)}
+     * @return cached reading or null
+     */
+    public synchronized Reading get(final Key key) {
+        final Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (System.nanoTime() - entry.created > ttlNanos) {
+            entries.remove(key);
+            evictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.reading;
+    }
+
+    /**
+     * Store a reading. Empty readings and readings of a key from before the last clear are not cached
+     *
+     * @param key     key created with {@link #key(String, EngineType, float, Pattern, Object, Mat)}
+     * @param reading reading
+     */
+    public synchronized void put(final Key key, final Reading reading) {
+        if (reading.isEmpty() || key.generation != generation) return;
+        entries.put(key.stored(), new Entry(reading, System.nanoTime()));
+    }
+
+    /**
+     * Drop all entries and start a new generation, so recognitions still running with the old settings are not stored
+     */
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized void setMaxSize(final int maxSize) {
+        this.maxSize = Math.max(1, maxSize);
+        while (entries.size() > this.maxSize) {
+            entries.remove(entries.keySet().iterator().next());
+            evictions.increment();
+        }
+    }
+
+    public long getTtlSeconds() {
+        return TimeUnit.NANOSECONDS.toSeconds(ttlNanos);
+    }
+
+    public void setTtlSeconds(final long ttlSeconds) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return share of lookups that were hits, between 0 and 1
+     */
+    public double getHitRate() {
+        final long hit = hits.sum(), total = hit + misses.sum();
+        return total == 0 ? 0 : hit / (double) total;
+    }
+
+    /**
+     * Cache key: generation, config name, recognition settings and roi hash,
+     * so a reading is never served for another config or settings than it was recognized with
+     */
+    public static class Key {
+        private final long generation;
+        private final String profile;
+        private final EngineType engine;
+        private final float minConfidence;
+        private final String pattern;
+        private final Object classifier;
+        private final ImageHash hash;
+
+        private Key(final long generation, final String profile, final EngineType engine, final float minConfidence, final String pattern,
+                    final Object classifier, final ImageHash hash) {
+            this.generation = generation;
+            this.profile = profile;
+            this.engine = engine;
+            this.minConfidence = minConfidence;
+            this.pattern = pattern;
+            this.classifier = classifier;
+            this.hash = hash;
+        }
+
+        /**
+         * @return key owning a copy of the roi's pixels
+         */
+        private Key stored() {
+            return new Key(generation, profile, engine, minConfidence, pattern, classifier, hash.stored());
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            final Key key = (Key) o;
+            return generation == key.generation && engine == key.engine && minConfidence == key.minConfidence && classifier == key.classifier
+                    && profile.equals(key.profile) && pattern.equals(key.pattern) && hash.equals(key.hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(generation, profile, engine, hash);
+        }
+    }
+
+    private static class Entry {
+        private final Reading reading;
+        private final long created;
+
+        private Entry(final Reading reading, final long created) {
+            this.reading = reading;
+            this.created = created;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.recognition;
+
+import org.opencv.core.Mat;
+
+/**
+ * Reads the text of a processed roi. Engines are shared between the recognition threads, so they have to be thread-safe
+ */
+public interface RecognitionEngine {
+    /**
+     * @return engine name, used in logs and statistics
+     */
+    String getName();
+
+    /**
+     * Recognize a processed roi
+     *
+     * @param roi binarized roi
+     * @return reading, {@link Reading#EMPTY} if nothing was recognized
+     */
+    Reading recognize(Mat roi);
+}
@@ -0,0 +1,19 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.recognition;
+
+/**
+ * Receives recognition results. Called on the thread that did the recognition, so implementations should return quickly
+ */
+public interface RecognitionListener {
+
+    /**
+     * @param result recognized frame
+     */
+    void onResult(RecognitionResult result);
+}
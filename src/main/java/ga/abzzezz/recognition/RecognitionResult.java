@@ -0,0 +1,139 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.recognition;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalDouble;
+
+/**
+ * Result of recognizing one frame, handed to all registered listeners.
+ * Holds one reading per region of interest, in region order
+ */
+public class RecognitionResult {
+    /**
+     * Sequence number of the frame, -1 for images not coming from the pipeline
+     */
+    private final long sequence;
+    /**
+     * Time the frame was grabbed at (ms)
+     */
+    private final long timestamp;
+    /**
+     * Config (profile) that was loaded when the frame was recognized, may be null
+     */
+    private final String profile;
+    /**
+     * Readings by region name
+     */
+    private final Map<String, Reading> readings;
+
+    public RecognitionResult(final long sequence, final long timestamp, final String profile, final Map<String, Reading> readings) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.profile = profile;
+        this.readings = Collections.unmodifiableMap(new LinkedHashMap<>(readings));
+    }
+
+    public RecognitionResult(final long sequence, final long timestamp, final String profile, final String region, final Reading reading) {
+        this(sequence, timestamp, profile, Collections.singletonMap(region, reading));
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    public Map<String, Reading> getReadings() {
+        return readings;
+    }
+
+    /**
+     * @param region region name
+     * @return reading of the region, empty if the region was not recognized
+     */
+    public Reading getReading(final String region) {
+        return readings.getOrDefault(region, Reading.EMPTY);
+    }
+
+    /**
+     * @return reading of the first region
+     */
+    public Reading getReading() {
+        return readings.isEmpty() ? Reading.EMPTY : readings.values().iterator().next();
+    }
+
+    /**
+     * @return true if no region has a reading
+     */
+    public boolean isEmpty() {
+        for (final Reading reading : readings.values()) {
+            if (!reading.isEmpty()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Text of the result. With a single region the reading's text, otherwise "name: text" for every region
+     *
+     * @return text
+     */
+    public String getText() {
+        if (readings.size() <= 1) return getReading().getText();
+        final StringBuilder builder = new StringBuilder();
+        for (final Map.Entry<String, Reading> entry : readings.entrySet()) {
+            if (builder.length() > 0) builder.append(", ");
+            builder.append(entry.getKey()).append(": ").append(entry.getValue().getText());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return lowest confidence of all regions
+     */
+    public float getConfidence() {
+        float confidence = readings.isEmpty() ? 0 : 1;
+        for (final Reading reading : readings.values()) confidence = Math.min(confidence, reading.getConfidence());
+        return confidence;
+    }
+
+    /**
+     * Parse the first region's reading as a number (displays usually show numbers)
+     *
+     * @return numeric value, empty if the text is not a number
+     */
+    public OptionalDouble getNumericValue() {
+        return getNumericValue(getReading());
+    }
+
+    /**
+     * Parse a region's reading as a number
+     *
+     * @param region region name
+     * @return numeric value, empty if the text is not a number
+     */
+    public OptionalDouble getNumericValue(final String region) {
+        return getNumericValue(getReading(region));
+    }
+
+    private static OptionalDouble getNumericValue(final Reading reading) {
+        try {
+            return OptionalDouble.of(Double.parseDouble(reading.getText().trim()));
+        } catch (final NumberFormatException e) {
+            return OptionalDouble.empty();
+        }
+    }
+}
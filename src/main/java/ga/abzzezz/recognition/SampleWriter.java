@@ -0,0 +1,45 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.recognition;
+
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.File;
+
+/**
+ * Writes the cells of a roi as labeled samples for the {@link DigitClassifier}, once its reading was confirmed.
+ * Every cell is saved as a png in the directory of its character (named by the character's code)
+ */
+public class SampleWriter {
+    private final DigitSegmenter segmenter = new DigitSegmenter();
+    private final Mat cell = new Mat();
+
+    /**
+     * Write the cells of a roi, labeled with the confirmed reading
+     *
+     * @param roi       binarized roi
+     * @param label     confirmed text, one character per cell (whitespace is ignored)
+     * @param sampleDir directory to write to
+     * @return number of samples written, 0 if the cells do not match the label
+     */
+    public synchronized int write(final Mat roi, final String label, final File sampleDir) {
+        final String characters = label.replaceAll("\\s", "");
+        final int count = segmenter.segment(roi);
+        if (count == 0 || count != characters.length()) return 0;
+
+        final long time = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            final File labelDir = new File(sampleDir, String.valueOf((int) characters.charAt(i)));
+            if (!labelDir.exists()) labelDir.mkdirs();
+            segmenter.copyCell(i, cell);
+            Imgcodecs.imwrite(new File(labelDir, time + "_" + i + ".png").getAbsolutePath(), cell);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.recognition;
+
+import org.opencv.core.Mat;
+
+/**
+ * Reads seven-segment displays without OCR.
+ * The binarized roi is split into digit cells, then the seven segment zones of every cell are sampled
+ * and the lit segments are looked up in a table. Narrow cells are told apart by their height and position:
+ * small cells at the baseline are decimal points, short ones in the middle are minus signs
+ * and full-height ones are ones (a one only lights the right segments, so it has no width to sample).
+ * <p>
+ * Segments are numbered a (top), b (top right), c (bottom right), d (bottom), e (bottom left), f (top left), g (middle),
+ * bit 0 being a.
+ */
+public class SevenSegmentDecoder implements RecognitionEngine {
+    /**
+     * Zone of every segment in the cell, as fractions of the cell's width and the text height: x0, y0, x1, y1
+     */
+    private static final float[][] ZONES = {
+            {0.25F, 0.00F, 0.75F, 0.20F}, // a
+            {0.65F, 0.12F, 1.00F, 0.42F}, // b
+            {0.65F, 0.58F, 1.00F, 0.88F}, // c
+            {0.25F, 0.80F, 0.75F, 1.00F}, // d
+            {0.00F, 0.58F, 0.35F, 0.88F}, // e
+            {0.00F, 0.12F, 0.35F, 0.42F}, // f
+            {0.25F, 0.40F, 0.75F, 0.60F}, // g
+    };
+    /**
+     * Fill a zone needs to count as lit
+     */
+    private static final float LIT_FILL = 0.3F;
+    /**
+     * Cells narrower than this (relative to the text height) are ones or decimal points
+     */
+    private static final float NARROW_CELL = 0.3F;
+    /**
+     * Characters by segment mask, 0 for masks that are no character
+     */
+    private static final char[] TABLE = new char[128];
+
+    static {
+        map('0', 0x3F);
+        map('1', 0x06);
+        map('2', 0x5B);
+        map('3', 0x4F);
+        map('4', 0x66);
+        map('5', 0x6D);
+        map('6', 0x7D);
+        map('6', 0x7C); // six without the top segment (would be a lower case b)
+        map('7', 0x07);
+        map('7', 0x27); // seven with the top left segment
+        map('8', 0x7F);
+        map('9', 0x6F);
+        map('9', 0x67); // nine without the bottom segment
+        map('-', 0x40);
+        map('A', 0x77);
+        map('C', 0x39);
+        map('d', 0x5E);
+        map('E', 0x79);
+        map('F', 0x71);
+        map('H', 0x76);
+        map('L', 0x38);
+        map('P', 0x73);
+    }
+
+    private static void map(final char character, final int mask) {
+        if (TABLE[mask] == 0) TABLE[mask] = character;
+    }
+
+    /**
+     * Segmenter per thread, so the decoder can be shared
+     */
+    private final ThreadLocal<DigitSegmenter> segmenter = ThreadLocal.withInitial(DigitSegmenter::new);
+
+    @Override
+    public String getName() {
+        return "seven-segment";
+    }
+
+    /**
+     * Decode a binarized roi. The confidence is the mean of the cells' confidences,
+     * a cell being as confident as its least clear segment (cells that are no character count as 0)
+     *
+     * @param roi binarized, ideally rectified roi
+     * @return reading, empty if no cell was found
+     */
+    @Override
+    public Reading recognize(final Mat roi) {
+        final DigitSegmenter cells = segmenter.get();
+        final int count = cells.segment(roi);
+        if (count == 0) return Reading.EMPTY;
+
+        final int textHeight = cells.getTextHeight();
+        final StringBuilder text = new StringBuilder(count);
+        float confidence = 0;
+        for (int i = 0; i < count; i++) {
+            final int width = cells.getCellWidth(i);
+            final int cellHeight = cells.getCellBottom(i) - cells.getCellTop(i);
+            if (width < textHeight * NARROW_CELL) {
+                final int cellTop = cells.getCellTop(i) - cells.getTop(), cellBottom = cells.getCellBottom(i) - cells.getTop();
+                if (cellTop > textHeight * 0.7F) {
+                    text.append('.');
+                    confidence += 1;
+                } else if (cellTop > textHeight * 0.3F && cellBottom < textHeight * 0.7F) {
+                    text.append('-');
+                    confidence += 1;
+                } else if (cellHeight > textHeight * 0.6F) {
+                    text.append('1');
+                    confidence += Math.min(1, cellHeight / (float) textHeight);
+                }
+                continue;
+            }
+            confidence += decodeCell(cells, i, textHeight, text);
+        }
+        return new Reading(text.toString(), text.length() == 0 ? 0 : confidence / count);
+    }
+
+    /**
+     * Sample the segment zones of a cell and append its character ('?' if the lit segments are no character)
+     *
+     * @return confidence of the cell
+     */
+    private float decodeCell(final DigitSegmenter cells, final int cell, final int textHeight, final StringBuilder text) {
+        final int x = cells.getCellStart(cell), y = cells.getTop();
+        final int width = cells.getCellWidth(cell);
+        int mask = 0;
+        float confidence = 1;
+        for (int segment = 0; segment < ZONES.length; segment++) {
+            final float[] zone = ZONES[segment];
+            final float fill = cells.fill(x + (int) (zone[0] * width), y + (int) (zone[1] * textHeight),
+                    x + (int) Math.ceil(zone[2] * width), y + (int) Math.ceil(zone[3] * textHeight));
+            if (fill >= LIT_FILL) {
+                mask |= 1 << segment;
+                confidence = Math.min(confidence, Math.min(1, (fill - LIT_FILL) / (1 - LIT_FILL) * 2));
+            } else {
+                confidence = Math.min(confidence, (LIT_FILL - fill) / LIT_FILL);
+            }
+        }
+        final char character = TABLE[mask];
+        text.append(character == 0 ? '?' : character);
+        return character == 0 ? 0 : confidence;
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.recognition;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Temporal consensus over the readings of one region.
+ * The last n readings are kept in a ring; a text becomes the region's reading once it was read in k of them,
+ * and it is kept until another text reaches k. Flicker during display refreshes never reaches the quorum, so it is not emitted.
+ * The reading published last is kept as well, so a result is only published when the region's reading changes.
+ * <p>
+ * Once the reading is stable, recognitions are skipped: after every n agreeing readings the stride doubles up to the maximum,
+ * the first disagreeing reading drops back to every frame. A change of the display is noticed at most one stride late.
+ * <p>
+ * The ring holds slot indices and confidences in primitive arrays, one slot per distinct text in the window,
+ * so adding a reading allocates nothing.
+ */
+public class TemporalVote {
+    /**
+     * Largest window, the arrays are sized for it
+     */
+    public static final int MAX_WINDOW = 16;
+
+    /**
+     * Slot and confidence of every reading in the window, oldest at head once the window is full
+     */
+    private final int[] ring = new int[MAX_WINDOW];
+    private final float[] ringConfidence = new float[MAX_WINDOW];
+    /**
+     * Per distinct text in the window: its latest reading, its votes and their summed confidence
+     */
+    private final Reading[] slots = new Reading[MAX_WINDOW];
+    private final int[] votes = new int[MAX_WINDOW];
+    private final float[] slotConfidence = new float[MAX_WINDOW];
+    private int head, size;
+    private int window, quorum, maxStride;
+    /**
+     * Reading that reached the quorum last, null until one did
+     */
+    private Reading stable;
+    /**
+     * Reading published last, null until one was
+     */
+    private Reading published;
+    /**
+     * Agreeing readings since the stride last grew, current stride and recognitions left to skip
+     */
+    private int streak, stride = 1, skip;
+    private long lastSequence = Long.MIN_VALUE;
+    private final LongAdder sampled = new LongAdder(), skipped = new LongAdder();
+
+    /**
+     * @param window    readings voting (n)
+     * @param quorum    votes a text needs (k)
+     * @param maxStride most recognitions skipped in a row is one less, 1 to recognize every frame
+     */
+    public TemporalVote(final int window, final int quorum, final int maxStride) {
+        configure(window, quorum, maxStride);
+    }
+
+    /**
+     * Change the window, quorum and stride. The votes are dropped, the stable reading is kept
+     *
+     * @param window    readings voting, clamped to 1 - {@link #MAX_WINDOW}
+     * @param quorum    votes a text needs, clamped to 1 - window
+     * @param maxStride largest stride, at least 1
+     */
+    public synchronized void configure(final int window, final int quorum, final int maxStride) {
+        this.window = Math.max(1, Math.min(MAX_WINDOW, window));
+        this.quorum = Math.max(1, Math.min(this.window, quorum));
+        this.maxStride = Math.max(1, maxStride);
+        clearVotes();
+    }
+
+    /**
+     * Check if the next recognition can be skipped
+     *
+     * @return the stable reading if the recognition is skipped, null if the region has to be recognized
+     */
+    public synchronized Reading check() {
+        if (skip > 0 && stable != null) {
+            skip--;
+            skipped.increment();
+            return stable;
+        }
+        return null;
+    }
+
+    /**
+     * Add a reading to the window. Readings of frames not newer than the last one added are ignored,
+     * frames recognized concurrently can finish out of order
+     *
+     * @param reading  reading of the region
+     * @param sequence frame sequence number
+     * @return reading to emit: the stable one, empty while no text reached the quorum
+     */
+    public synchronized Reading add(final Reading reading, final long sequence) {
+        if (sequence <= lastSequence) return current();
+        lastSequence = sequence;
+        sampled.increment();
+
+        if (size == window) {
+            final int evicted = ring[head];
+            votes[evicted]--;
+            slotConfidence[evicted] -= ringConfidence[head];
+            if (votes[evicted] == 0) {
+                slots[evicted] = null;
+                slotConfidence[evicted] = 0;
+            }
+        } else size++;
+        final int slot = findSlot(reading.getText());
+        slots[slot] = reading;
+        votes[slot]++;
+        slotConfidence[slot] += reading.getConfidence();
+        ring[head] = slot;
+        ringConfidence[head] = reading.getConfidence();
+        head = (head + 1) % window;
+
+        /* Below a majority quorum several texts can reach it, the more confident one wins */
+        int best = -1;
+        for (int i = 0; i < window; i++) {
+            if (votes[i] >= quorum && (best < 0 || slotConfidence[i] > slotConfidence[best])) best = i;
+        }
+        if (best >= 0) stable = slots[best];
+
+        if (stable != null && stable.getText().equals(reading.getText())) {
+            if (++streak >= window && stride < maxStride) {
+                stride = Math.min(maxStride, stride * 2);
+                streak = 0;
+            }
+        } else {
+            streak = 0;
+            stride = 1;
+        }
+        skip = stride - 1;
+        return current();
+    }
+
+    /**
+     * Slot holding a text, or a free one. There is always one, as the window holds at most one text per slot
+     */
+    private int findSlot(final String text) {
+        int free = -1;
+        for (int i = 0; i < window; i++) {
+            if (votes[i] == 0) {
+                if (free < 0) free = i;
+            } else if (slots[i].getText().equals(text)) return i;
+        }
+        return free;
+    }
+
+    /**
+     * Record an emitted reading as the published one. Called in frame order, together with publishing the result
+     *
+     * @param reading reading the vote emitted
+     * @return true if its text differs from the reading published before, so it has to be published
+     */
+    public synchronized boolean publish(final Reading reading) {
+        if (published != null && published.getText().equals(reading.getText())) return false;
+        published = reading;
+        return true;
+    }
+
+    private Reading current() {
+        return stable == null ? Reading.EMPTY : stable;
+    }
+
+    private void clearVotes() {
+        for (int i = 0; i < MAX_WINDOW; i++) {
+            slots[i] = null;
+            votes[i] = 0;
+            slotConfidence[i] = 0;
+        }
+        head = size = streak = skip = 0;
+        stride = 1;
+    }
+
+    /**
+     * Forget the votes, the stable and the published reading
+     */
+    public synchronized void reset() {
+        clearVotes();
+        stable = published = null;
+        lastSequence = Long.MIN_VALUE;
+    }
+
+    /**
+     * @return readings added to the window
+     */
+    public long getSampled() {
+        return sampled.sum();
+    }
+
+    /**
+     * @return recognitions skipped because the reading was stable
+     */
+    public long getSkipped() {
+        return skipped.sum();
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.recognition;
+
+import org.opencv.core.Mat;
+
+import java.util.function.Supplier;
+
+/**
+ * Recognizes rois with a tesseract instance borrowed from the pool
+ */
+public class TesseractEngine implements RecognitionEngine {
+    /**
+     * Supplies the pool, so it is only loaded once the engine is used
+     */
+    private final Supplier<TesseractPool> pool;
+
+    public TesseractEngine(final Supplier<TesseractPool> pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public String getName() {
+        return "tesseract";
+    }
+
+    /**
+     * Recognize the roi as a whole, rois are already cropped by the processing
+     *
+     * @param roi binarized roi
+     * @return tesseract's guess
+     */
+    @Override
+    public Reading recognize(final Mat roi) {
+        return pool.get().recognize(roi);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.recognition;
+
+import ga.abzzezz.util.QuickLog;
+import org.opencv.core.Mat;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of preinitialized tesseract workers, so several images can be recognized at the same time.
+ * A recognition borrows a worker, uses it on its own thread and gives it back.
+ */
+public class TesseractPool {
+    private final BlockingQueue<TesseractWorker> idle;
+    private final TesseractWorker[] workers;
+    /**
+     * Time the pool was created at (ns), base for the utilization
+     */
+    private final long createdNanos = System.nanoTime();
+    /**
+     * Metrics: borrows, total and max wait time, total time workers were in use
+     */
+    private final LongAdder borrows = new LongAdder(), waitNanos = new LongAdder(), busyNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicInteger inUse = new AtomicInteger();
+
+    /**
+     * Create the pool and load the model into every worker
+     *
+     * @param size     number of workers
+     * @param dataPath directory containing the traineddata
+     * @param language language (model) to load
+     */
+    public TesseractPool(final int size, final String dataPath, final String language) {
+        QuickLog.log("Loading " + size + " tesseract instances", QuickLog.LogType.INFO);
+        this.idle = new ArrayBlockingQueue<>(size);
+        this.workers = new TesseractWorker[size];
+        for (int i = 0; i < size; i++) {
+            workers[i] = new TesseractWorker(dataPath, language);
+            idle.add(workers[i]);
+        }
+        QuickLog.log("Done loading tesseract", QuickLog.LogType.INFO);
+    }
+
+    /**
+     * Borrow a worker, waiting until one is idle. Has to be given back with {@link #giveBack(TesseractWorker, long)}
+     *
+     * @return worker
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public TesseractWorker borrow() throws InterruptedException {
+        final long start = System.nanoTime();
+        final TesseractWorker worker = idle.take();
+        final long waited = System.nanoTime() - start;
+        borrows.increment();
+        waitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        inUse.incrementAndGet();
+        return worker;
+    }
+
+    /**
+     * Give a borrowed worker back
+     *
+     * @param worker     worker
+     * @param busyNanos time the worker was used for
+     */
+    public void giveBack(final TesseractWorker worker, final long busyNanos) {
+        this.busyNanos.add(busyNanos);
+        inUse.decrementAndGet();
+        idle.offer(worker);
+    }
+
+    /**
+     * Recognize a mat with a borrowed worker
+     *
+     * @param image single channel mat to recognize
+     * @return reading, empty if interrupted
+     */
+    public Reading recognize(final Mat image) {
+        final TesseractWorker worker;
+        try {
+            worker = borrow();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Reading.EMPTY;
+        }
+        final long start = System.nanoTime();
+        try {
+            return worker.recognize(image);
+        } finally {
+            giveBack(worker, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Free all workers. Only call once no worker is borrowed anymore
+     */
+    public void dispose() {
+        for (final TesseractWorker worker : workers) worker.dispose();
+        idle.clear();
+    }
+
+    public int getSize() {
+        return workers.length;
+    }
+
+    /**
+     * @return number of workers currently borrowed
+     */
+    public int getInUse() {
+        return inUse.get();
+    }
+
+    public long getBorrows() {
+        return borrows.sum();
+    }
+
+    /**
+     * @return mean time spent waiting for a worker (ms)
+     */
+    public double getMeanWaitMillis() {
+        final long count = borrows.sum();
+        return count == 0 ? 0 : waitNanos.sum() / (double) count / 1e6;
+    }
+
+    /**
+     * @return longest time spent waiting for a worker (ms)
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1e6;
+    }
+
+    /**
+     * @return share of the pool's capacity used since it was created, between 0 and 1
+     */
+    public double getUtilization() {
+        final long elapsed = System.nanoTime() - createdNanos;
+        return elapsed <= 0 ? 0 : busyNanos.sum() / ((double) elapsed * workers.length);
+    }
+}
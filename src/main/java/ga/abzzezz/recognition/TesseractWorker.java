@@ -0,0 +1,98 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.recognition;
+
+import com.sun.jna.Pointer;
+import net.sourceforge.tess4j.ITessAPI;
+import net.sourceforge.tess4j.TessAPI1;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One native tesseract instance with its model loaded once.
+ * Tesseract instances are not thread-safe, so a worker must only be used by one thread at a time (see {@link TesseractPool})
+ */
+public class TesseractWorker {
+    /**
+     * Resolution reported to tesseract for every image (dpi). Rois carry none, without it tesseract warns of 0 dpi on every call
+     */
+    public static final int SOURCE_RESOLUTION = 70;
+
+    private final ITessAPI.TessBaseAPI handle;
+    /**
+     * Scratch mat for rois that are not single channel 8 bit
+     */
+    private final Mat gray = new Mat();
+
+    /**
+     * Create the native instance and load the model
+     *
+     * @param dataPath directory containing the traineddata
+     * @param language language (model) to load
+     */
+    public TesseractWorker(final String dataPath, final String language) {
+        this.handle = TessAPI1.TessBaseAPICreate();
+        if (TessAPI1.TessBaseAPIInit3(handle, dataPath, language) != 0) {
+            TessAPI1.TessBaseAPIDelete(handle);
+            throw new IllegalStateException("Could not load tesseract language " + language + " from " + dataPath);
+        }
+    }
+
+    /**
+     * Recognize a mat. Its memory is handed to tesseract directly: a roi (submat) is passed at its own address with
+     * the parent's row stride, so neither the roi nor the frame is copied or converted before tesseract takes it
+     *
+     * @param roi single channel 8 bit mat (others are converted to gray first)
+     * @return text and mean confidence
+     */
+    public Reading recognize(final Mat roi) {
+        if (roi.empty()) return Reading.EMPTY;
+        Mat image = roi;
+        if (roi.type() != CvType.CV_8UC1) {
+            Imgproc.cvtColor(roi, gray, roi.channels() == 4 ? Imgproc.COLOR_BGRA2GRAY : Imgproc.COLOR_BGR2GRAY);
+            image = gray;
+        }
+        final int bytesPerLine = (int) image.step1();
+        final long size = (long) bytesPerLine * (image.rows() - 1) + image.cols();
+        final ByteBuffer buffer = new Pointer(image.dataAddr()).getByteBuffer(0, size);
+        TessAPI1.TessBaseAPISetImage(handle, buffer, image.cols(), image.rows(), 1, bytesPerLine);
+        TessAPI1.TessBaseAPISetSourceResolution(handle, SOURCE_RESOLUTION);
+        return read();
+    }
+
+    /**
+     * Read the text of the image currently set and clear the instance for the next one
+     *
+     * @return text and mean confidence
+     */
+    private Reading read() {
+        final Pointer textPointer = TessAPI1.TessBaseAPIGetUTF8Text(handle);
+        try {
+            if (textPointer == null) return Reading.EMPTY;
+            final String text = textPointer.getString(0, StandardCharsets.UTF_8.name()).trim();
+            if (text.isEmpty()) return Reading.EMPTY;
+            return new Reading(text, TessAPI1.TessBaseAPIMeanTextConf(handle) / 100F);
+        } finally {
+            if (textPointer != null) TessAPI1.TessDeleteText(textPointer);
+            TessAPI1.TessBaseAPIClear(handle);
+        }
+    }
+
+    /**
+     * Free the native instance
+     */
+    public void dispose() {
+        gray.release();
+        TessAPI1.TessBaseAPIEnd(handle);
+        TessAPI1.TessBaseAPIDelete(handle);
+    }
+}
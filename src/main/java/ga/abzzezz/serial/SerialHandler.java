@@ -12,12 +12,14 @@ import com.fazecast.jSerialComm.SerialPort;
 import com.fazecast.jSerialComm.SerialPortEvent;
 import com.fazecast.jSerialComm.SerialPortMessageListener;
 import ga.abzzezz.Singleton;
+import ga.abzzezz.metrics.LatencyHistogram;
 import ga.abzzezz.util.MathUtil;
 import ga.abzzezz.util.QuickLog;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Class to handle the serial connection between App and port (COM4)
@@ -34,7 +36,16 @@ public class SerialHandler {
 
     private int index = -1;
 
-    private SerialPort serialPort;
+    private volatile SerialPort serialPort;
+    /**
+     * Time a write to the port took, and the number of writes that failed
+     */
+    private final LatencyHistogram writeLatency = new LatencyHistogram();
+    private final LongAdder failedWrites = new LongAdder();
+    /**
+     * Commands and bytes written to the port
+     */
+    private final LongAdder commandsSent = new LongAdder(), bytesSent = new LongAdder();
 
     /**
      * Set port
@@ -112,10 +123,16 @@ public class SerialHandler {
      */
     private int changeAmount(int amount, final char mode) {
         amount = (int) MathUtil.clamp(amount, 45, 180);
+        final byte[] command = format(mode, amount);
+        final long start = System.nanoTime();
         try {
-            serialPort.getOutputStream().write(format(mode, amount));
+            serialPort.getOutputStream().write(command);
             serialPort.getOutputStream().flush();
+            writeLatency.record(System.nanoTime() - start);
+            commandsSent.increment();
+            bytesSent.add(command.length);
         } catch (final IOException e) {
+            failedWrites.increment();
             QuickLog.log("Writing to port", QuickLog.LogType.ERROR);
             e.printStackTrace();
         }
@@ -156,6 +173,25 @@ public class SerialHandler {
         return Optional.ofNullable(serialPort);
     }
 
+    /**
+     * @return time writes to the port took
+     */
+    public LatencyHistogram getWriteLatency() {
+        return writeLatency;
+    }
+
+    public long getFailedWrites() {
+        return failedWrites.sum();
+    }
+
+    public long getCommandsSent() {
+        return commandsSent.sum();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
     /**
      * Port's index
      *
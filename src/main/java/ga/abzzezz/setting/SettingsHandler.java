@@ -8,6 +8,7 @@
 package ga.abzzezz.setting;
 
 import ga.abzzezz.Singleton;
+import ga.abzzezz.image.ProcessingParameters;
 import ga.abzzezz.util.FileUtil;
 import ga.abzzezz.util.SettingsHolder;
 import org.json.JSONObject;
@@ -15,13 +16,24 @@ import org.json.JSONObject;
 public class SettingsHandler {
 
     public void storeSettings() {
+        final ProcessingParameters parameters = Singleton.INSTANCE.getProcessingHandler().getParameters();
         final JSONObject jsonObject = new JSONObject();
         jsonObject.put("rotX", Singleton.INSTANCE.getRotationHandler().getX()).put("rotY", Singleton.INSTANCE.getRotationHandler().getY())
                 .put("port", Singleton.INSTANCE.getSerialHandler().getIndex())
                 .put("logResultsToFile", SettingsHolder.logResultsToFile)
-                .put("threshold1", Singleton.INSTANCE.getProcessingHandler().getThresholds()[0])
-                .put("threshold2", Singleton.INSTANCE.getProcessingHandler().getThresholds()[1])
-                .put("camIndex", Singleton.INSTANCE.getProcessingHandler().getCamIndex());
+                .put("threshold1", parameters.getThreshold1())
+                .put("threshold2", parameters.getThreshold2())
+                .put("camIndex", Singleton.INSTANCE.getProcessingHandler().getCamIndex())
+                .put("recognitionRate", Singleton.INSTANCE.getProcessingHandler().getRecognitionRate())
+                .put("changeTolerance", Singleton.INSTANCE.getProcessingHandler().getChangeTolerance())
+                .put("voteWindow", Singleton.INSTANCE.getProcessingHandler().getVoteWindow())
+                .put("voteQuorum", Singleton.INSTANCE.getProcessingHandler().getVoteQuorum())
+                .put("maxSampleStride", Singleton.INSTANCE.getProcessingHandler().getMaxSampleStride())
+                .put("cacheSize", Singleton.INSTANCE.getProcessingHandler().getRecognitionCache().getMaxSize())
+                .put("cacheTtl", Singleton.INSTANCE.getProcessingHandler().getRecognitionCache().getTtlSeconds())
+                .put("tesseractInstances", Singleton.INSTANCE.getProcessingHandler().getTesseractInstances())
+                .put("queueCapacity", Singleton.INSTANCE.getProcessingHandler().getQueueCapacity())
+                .put("overflowPolicy", Singleton.INSTANCE.getProcessingHandler().getOverflowPolicy());
         FileUtil.writeStringToFile(Singleton.INSTANCE.getSavedFile(), jsonObject.toString(), false);
     }
 }
@@ -0,0 +1,55 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.source;
+
+import org.opencv.core.Mat;
+import org.opencv.videoio.VideoCapture;
+
+/**
+ * Live frames from a camera
+ */
+public class CameraSource implements FrameSource {
+    private final VideoCapture capture = new VideoCapture();
+    private final int index;
+    private long timestamp;
+
+    /**
+     * @param index camera index (integrated webcam usually no. 0)
+     */
+    public CameraSource(final int index) {
+        this.index = index;
+        capture.open(index);
+    }
+
+    @Override
+    public boolean read(final Mat dst) {
+        if (!capture.read(dst)) return false;
+        timestamp = System.currentTimeMillis();
+        return true;
+    }
+
+    @Override
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public boolean isOpened() {
+        return capture.isOpened();
+    }
+
+    @Override
+    public String getName() {
+        return "camera " + index;
+    }
+
+    @Override
+    public void close() {
+        if (capture.isOpened()) capture.release();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.source;
+
+import ga.abzzezz.util.QuickLog;
+import org.opencv.core.Mat;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Records frames to a preallocated, memory-mapped raw stream (see {@link RawFrameFormat}).
+ * Frames are not encoded: the header is written into the mapping and the pixels are copied
+ * from the grabbed mat straight into the mapped file by a mat wrapping the mapping.
+ * Recording stops once the file is full, it never grows the file or blocks the caller
+ */
+public class FrameRecorder implements Closeable {
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final long capacity;
+    /**
+     * Mapped window and the file position it starts at
+     */
+    private MappedByteBuffer window;
+    private long windowStart;
+    /**
+     * File position of the next frame
+     */
+    private long position;
+    private long frames;
+    private boolean full;
+
+    /**
+     * Create the file (replacing an existing one) and preallocate it
+     *
+     * @param file     file to record to
+     * @param capacity size to preallocate (bytes)
+     * @throws IOException if the file can not be created
+     */
+    public FrameRecorder(final File file, final long capacity) throws IOException {
+        this.file = file;
+        this.capacity = capacity;
+        this.randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.setLength(0);
+        randomAccessFile.setLength(capacity);
+    }
+
+    /**
+     * Append a frame
+     *
+     * @param frame     frame to record
+     * @param timestamp time the frame was taken at (ms)
+     * @return false if the frame did not fit into the file anymore
+     */
+    public synchronized boolean record(final Mat frame, final long timestamp) {
+        if (full || frame.empty()) return false;
+        final long size = frame.total() * frame.elemSize();
+        final long length = RawFrameFormat.frameLength(size);
+        if (position + length > capacity || length > RawFrameFormat.WINDOW_SIZE) {
+            full = true;
+            QuickLog.log("Recording " + file.getName() + " is full after " + frames + " frames", QuickLog.LogType.WARNING);
+            return false;
+        }
+        try {
+            if (window == null || position + length > windowStart + window.capacity()) map(position);
+        } catch (final IOException e) {
+            full = true;
+            QuickLog.log("Mapping recording " + file.getName(), QuickLog.LogType.ERROR);
+            e.printStackTrace();
+            return false;
+        }
+
+        final int offset = (int) (position - windowStart);
+        window.order(RawFrameFormat.ORDER);
+        window.putLong(offset, timestamp);
+        window.putInt(offset + 8, frame.width());
+        window.putInt(offset + 12, frame.height());
+        window.putInt(offset + 16, frame.type());
+        window.putInt(offset + 20, (int) size);
+
+        window.position(offset + RawFrameFormat.HEADER_SIZE);
+        final Mat mapped = new Mat(frame.height(), frame.width(), frame.type(), window.slice());
+        frame.copyTo(mapped);
+        mapped.release();
+        position += length;
+        frames++;
+        return true;
+    }
+
+    /**
+     * Map the window starting at a file position
+     */
+    private void map(final long start) throws IOException {
+        windowStart = start;
+        window = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, start, Math.min(RawFrameFormat.WINDOW_SIZE, capacity - start));
+    }
+
+    /**
+     * @return number of frames recorded
+     */
+    public synchronized long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return bytes used so far
+     */
+    public synchronized long getPosition() {
+        return position;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Flush the mapping to disk and close the file. The unused, zero-filled rest of the file is kept,
+     * as a mapped file can not be truncated on every platform
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (window != null) window.force();
+        window = null;
+        full = true;
+        randomAccessFile.close();
+        QuickLog.log("Recorded " + frames + " frames to " + file.getName(), QuickLog.LogType.INFO);
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.source;
+
+import org.opencv.core.Mat;
+
+/**
+ * Source of frames for the pipeline: a camera, a video file, an image sequence or a recorded raw stream.
+ * Sources are opened when created and read by one thread at a time
+ */
+public interface FrameSource {
+    /**
+     * Read the next frame
+     *
+     * @param dst mat to read into, reallocated only if the frame size changes
+     * @return false if no more frames can be read
+     */
+    boolean read(Mat dst);
+
+    /**
+     * @return time the last read frame was recorded at (ms). For live sources the wall clock time it was read at
+     */
+    long getTimestamp();
+
+    /**
+     * @return true if the source was opened and can be read
+     */
+    boolean isOpened();
+
+    /**
+     * @return description of the source for logs
+     */
+    String getName();
+
+    /**
+     * Release the source
+     */
+    void close();
+}
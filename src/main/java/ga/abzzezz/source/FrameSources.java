@@ -0,0 +1,41 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.source;
+
+import java.io.File;
+
+/**
+ * Creates frame sources from a description
+ */
+public final class FrameSources {
+    /**
+     * Frame rate image sequences are stamped with
+     */
+    public static final double IMAGE_SEQUENCE_FPS = 25;
+
+    private FrameSources() {
+    }
+
+    /**
+     * Open a source: a camera index, a directory of images, a raw stream ({@link RawFrameFormat#EXTENSION}) or a video file.
+     * Recorded sources are replayed in the given mode
+     *
+     * @param description camera index or path
+     * @param mode        replay mode for recorded sources
+     * @return opened source, check {@link FrameSource#isOpened()}
+     */
+    public static FrameSource open(final String description, final ReplayMode mode) {
+        if (description.matches("\\d+")) return new CameraSource(Integer.parseInt(description));
+        final File file = new File(description);
+        final FrameSource source;
+        if (file.isDirectory()) source = new ImageSequenceSource(file, IMAGE_SEQUENCE_FPS);
+        else if (file.getName().endsWith(RawFrameFormat.EXTENSION)) source = new RawStreamSource(file);
+        else source = new VideoFileSource(file);
+        return new ReplaySource(source, mode);
+    }
+}
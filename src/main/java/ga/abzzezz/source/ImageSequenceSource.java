@@ -0,0 +1,100 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.source;
+
+import ga.abzzezz.util.QuickLog;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Images of a directory in name order, played as frames at a fixed frame rate
+ */
+public class ImageSequenceSource implements FrameSource {
+    /**
+     * Image file extensions read from the directory
+     */
+    private static final String[] IMAGE_EXTENSIONS = {".png", ".jpg", ".jpeg", ".bmp", ".tif", ".tiff"};
+
+    private final File directory;
+    private final File[] files;
+    private final double fps;
+    private int index;
+    private long timestamp;
+
+    /**
+     * @param directory directory of images
+     * @param fps       frame rate the images are stamped with
+     */
+    public ImageSequenceSource(final File directory, final double fps) {
+        this.directory = directory;
+        this.files = Optional.ofNullable(directory.listFiles(ImageSequenceSource::isImage)).orElse(new File[0]);
+        this.fps = fps;
+        Arrays.sort(files);
+    }
+
+    /**
+     * @param file file to check
+     * @return true if the file has an image extension
+     */
+    public static boolean isImage(final File file) {
+        final String name = file.getName().toLowerCase(Locale.ROOT);
+        for (final String extension : IMAGE_EXTENSIONS) {
+            if (name.endsWith(extension)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean read(final Mat dst) {
+        while (index < files.length) {
+            final File file = files[index++];
+            final Mat image = Imgcodecs.imread(file.getAbsolutePath(), Imgcodecs.IMREAD_COLOR);
+            if (image.empty()) {
+                QuickLog.log("Could not read " + file.getName(), QuickLog.LogType.WARNING);
+                continue;
+            }
+            image.copyTo(dst);
+            image.release();
+            timestamp = (long) ((index - 1) * 1000 / fps);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return images in the sequence
+     */
+    public File[] getFiles() {
+        return files.clone();
+    }
+
+    @Override
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public boolean isOpened() {
+        return files.length > 0;
+    }
+
+    @Override
+    public String getName() {
+        return "images " + directory.getName();
+    }
+
+    @Override
+    public void close() {
+        index = files.length;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.source;
+
+import java.nio.ByteOrder;
+
+/**
+ * Layout of a raw frame stream: frames one after another, each a fixed-size header followed by the mat's pixel bytes.
+ * The header holds the timestamp (long, ms), width, height, mat type and the number of pixel bytes (ints).
+ * Frames start at multiples of 8 bytes. A header with a width of 0 (or the end of the file) ends the stream,
+ * so a preallocated, zero-filled file needs no end marker
+ */
+public final class RawFrameFormat {
+    /**
+     * Size of a frame header (bytes)
+     */
+    public static final int HEADER_SIZE = 24;
+    /**
+     * Byte order of the header fields
+     */
+    public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    /**
+     * File extension of raw streams
+     */
+    public static final String EXTENSION = ".frames";
+
+    /**
+     * Stream files are mapped in windows of this size, a frame has to fit into one (bytes)
+     */
+    public static final long WINDOW_SIZE = 256L << 20;
+
+    private RawFrameFormat() {
+    }
+
+    /**
+     * @param size number of pixel bytes
+     * @return bytes a frame takes in the stream, header and padding included
+     */
+    public static long frameLength(final long size) {
+        return (HEADER_SIZE + size + 7) & ~7L;
+    }
+}
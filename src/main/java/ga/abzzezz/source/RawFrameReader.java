@@ -0,0 +1,102 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.source;
+
+import org.opencv.core.Mat;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a raw stream (see {@link RawFrameFormat}) by mapping it.
+ * Frames are returned as mats wrapping the mapping, no pixel is copied
+ */
+public class RawFrameReader implements Closeable {
+    private final FileChannel channel;
+    private final long length;
+    private MappedByteBuffer window;
+    private long windowStart, position;
+    /**
+     * Mat wrapping the current frame
+     */
+    private Mat frame;
+    private long timestamp;
+
+    /**
+     * @param file raw stream file
+     * @throws IOException if the file can not be opened
+     */
+    public RawFrameReader(final File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.length = channel.size();
+    }
+
+    /**
+     * Move to the next frame
+     *
+     * @return mat wrapping the frame in the mapping, read only. Valid until the next call or until the reader is closed.
+     * Null at the end of the stream
+     * @throws IOException if the file can not be mapped
+     */
+    public Mat next() throws IOException {
+        releaseFrame();
+        if (position + RawFrameFormat.HEADER_SIZE > length) return null;
+        if (!isMapped(position, RawFrameFormat.HEADER_SIZE)) map(position);
+        int offset = (int) (position - windowStart);
+        final int width = window.getInt(offset + 8);
+        if (width == 0) return null;
+        final long time = window.getLong(offset);
+        final int height = window.getInt(offset + 12), type = window.getInt(offset + 16), size = window.getInt(offset + 20);
+        final long frameLength = RawFrameFormat.frameLength(size);
+        if (position + RawFrameFormat.HEADER_SIZE + size > length) return null;
+        if (!isMapped(position, frameLength)) {
+            map(position);
+            offset = 0;
+        }
+
+        window.position(offset + RawFrameFormat.HEADER_SIZE);
+        frame = new Mat(height, width, type, window.slice());
+        timestamp = time;
+        position += frameLength;
+        return frame;
+    }
+
+    private boolean isMapped(final long start, final long size) {
+        return window != null && start >= windowStart && start + size <= windowStart + window.capacity();
+    }
+
+    private void map(final long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(RawFrameFormat.WINDOW_SIZE, length - start));
+        window.order(RawFrameFormat.ORDER);
+    }
+
+    private void releaseFrame() {
+        if (frame == null) return;
+        frame.release();
+        frame = null;
+    }
+
+    /**
+     * @return time the current frame was recorded at (ms)
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public void close() throws IOException {
+        releaseFrame();
+        window = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.source;
+
+import ga.abzzezz.util.QuickLog;
+import org.opencv.core.Mat;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Frames of a recorded raw stream (see {@link RawFrameFormat}), stamped with their recorded time.
+ * The stream is mapped and needs no decoding, a frame costs one copy from the mapping into the destination
+ */
+public class RawStreamSource implements FrameSource {
+    private final File file;
+    private RawFrameReader reader;
+
+    /**
+     * @param file raw stream file
+     */
+    public RawStreamSource(final File file) {
+        this.file = file;
+        try {
+            reader = new RawFrameReader(file);
+        } catch (final IOException e) {
+            QuickLog.log("Opening raw stream " + file.getName(), QuickLog.LogType.ERROR);
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public boolean read(final Mat dst) {
+        if (reader == null) return false;
+        try {
+            final Mat frame = reader.next();
+            if (frame == null) return false;
+            frame.copyTo(dst);
+            return true;
+        } catch (final IOException e) {
+            QuickLog.log("Reading raw stream " + file.getName(), QuickLog.LogType.ERROR);
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    @Override
+    public long getTimestamp() {
+        return reader == null ? 0 : reader.getTimestamp();
+    }
+
+    @Override
+    public boolean isOpened() {
+        return reader != null;
+    }
+
+    @Override
+    public String getName() {
+        return "raw stream " + file.getName();
+    }
+
+    @Override
+    public void close() {
+        if (reader == null) return;
+        try {
+            reader.close();
+        } catch (final IOException e) {
+            e.printStackTrace();
+        }
+        reader = null;
+    }
+}
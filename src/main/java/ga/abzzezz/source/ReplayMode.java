@@ -0,0 +1,22 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.source;
+
+/**
+ * How recorded frames are fed to the pipeline
+ */
+public enum ReplayMode {
+    /**
+     * At the pace they were recorded at, like a live camera
+     */
+    RECORDED,
+    /**
+     * As fast as the pipeline takes them
+     */
+    UNTHROTTLED
+}
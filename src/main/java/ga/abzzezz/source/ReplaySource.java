@@ -0,0 +1,81 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.source;
+
+import org.opencv.core.Mat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a recorded source either at its recorded timing or as fast as possible
+ */
+public class ReplaySource implements FrameSource {
+    private final FrameSource source;
+    private final ReplayMode mode;
+    /**
+     * Recorded time of the first frame (ms) and the time it was replayed at (ns)
+     */
+    private long firstTimestamp, start;
+    private boolean started;
+
+    /**
+     * @param source recorded source
+     * @param mode   replay mode
+     */
+    public ReplaySource(final FrameSource source, final ReplayMode mode) {
+        this.source = source;
+        this.mode = mode;
+    }
+
+    /**
+     * Read the next frame. When replaying at recorded timing, wait until the frame is due
+     */
+    @Override
+    public boolean read(final Mat dst) {
+        if (!source.read(dst)) return false;
+        if (mode == ReplayMode.UNTHROTTLED) return true;
+        if (!started) {
+            firstTimestamp = source.getTimestamp();
+            start = System.nanoTime();
+            started = true;
+            return true;
+        }
+        final long due = start + TimeUnit.MILLISECONDS.toNanos(source.getTimestamp() - firstTimestamp);
+        long wait;
+        while ((wait = due - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+            if (Thread.currentThread().isInterrupted()) return false;
+        }
+        return true;
+    }
+
+    public ReplayMode getMode() {
+        return mode;
+    }
+
+    @Override
+    public long getTimestamp() {
+        return source.getTimestamp();
+    }
+
+    @Override
+    public boolean isOpened() {
+        return source.isOpened();
+    }
+
+    @Override
+    public String getName() {
+        return source.getName() + " (" + mode.name().toLowerCase() + ")";
+    }
+
+    @Override
+    public void close() {
+        source.close();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.source;
+
+import org.opencv.core.Mat;
+import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.Videoio;
+
+import java.io.File;
+
+/**
+ * Frames of a video file, stamped with their position in the video
+ */
+public class VideoFileSource implements FrameSource {
+    private final VideoCapture capture = new VideoCapture();
+    private final File file;
+    private final double fps;
+    private long index, timestamp;
+
+    /**
+     * @param file video file
+     */
+    public VideoFileSource(final File file) {
+        this.file = file;
+        capture.open(file.getAbsolutePath());
+        this.fps = capture.isOpened() ? capture.get(Videoio.CAP_PROP_FPS) : 0;
+    }
+
+    @Override
+    public boolean read(final Mat dst) {
+        if (!capture.read(dst)) return false;
+        /* Some backends do not report the position, it is derived from the frame rate then */
+        final double position = capture.get(Videoio.CAP_PROP_POS_MSEC);
+        timestamp = (long) (position > 0 || fps <= 0 ? position : index * 1000 / fps);
+        index++;
+        return true;
+    }
+
+    /**
+     * Skip the next frame without decoding it
+     *
+     * @return false if there is no next frame
+     */
+    public boolean skip() {
+        if (!capture.grab()) return false;
+        index++;
+        return true;
+    }
+
+    /**
+     * @return number of frames the container reports, may be an estimate
+     */
+    public long getFrameCount() {
+        return (long) capture.get(Videoio.CAP_PROP_FRAME_COUNT);
+    }
+
+    /**
+     * @return index of the next frame
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    @Override
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public boolean isOpened() {
+        return capture.isOpened();
+    }
+
+    @Override
+    public String getName() {
+        return "video " + file.getName();
+    }
+
+    @Override
+    public void close() {
+        if (capture.isOpened()) capture.release();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Created by Roman P.  (2020.)
+ * created to work on Java version 8
+ *
+ *
+ */
+
+package ga.abzzezz.vertex;
+
+import org.opencv.core.Point;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Named region of interest, one display in the camera view. Defined by its corner points.
+ * Regions are immutable, a changed region is a new instance
+ */
+public class Region {
+    private final String name;
+    private final List<Point> points;
+    /**
+     * Corners ordered top left, top right, bottom right, bottom left. Null unless the region has four points
+     */
+    private final Point[] corners;
+
+    /**
+     * @param name   region name, used to label its readings
+     * @param points corner points (usually four)
+     */
+    public Region(final String name, final List<Point> points) {
+        this.name = name;
+        this.points = Collections.unmodifiableList(new ArrayList<>(points));
+        this.corners = points.size() == 4 ? orderCorners(points) : null;
+    }
+
+    /**
+     * Order four points regardless of the order they were placed in.
+     * The top left corner has the smallest x + y, the bottom right the largest;
+     * the top right has the smallest y - x, the bottom left the largest
+     *
+     * @param points four points
+     * @return ordered corners
+     */
+    private static Point[] orderCorners(final List<Point> points) {
+        Point topLeft = points.get(0), bottomRight = points.get(0), topRight = points.get(0), bottomLeft = points.get(0);
+        for (final Point point : points) {
+            if (point.x + point.y < topLeft.x + topLeft.y) topLeft = point;
+            if (point.x + point.y > bottomRight.x + bottomRight.y) bottomRight = point;
+            if (point.y - point.x < topRight.y - topRight.x) topRight = point;
+            if (point.y - point.x > bottomLeft.y - bottomLeft.x) bottomLeft = point;
+        }
+        return new Point[]{topLeft.clone(), topRight.clone(), bottomRight.clone(), bottomLeft.clone()};
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Point> getPoints() {
+        return points;
+    }
+
+    /**
+     * @param index corner index: top left, top right, bottom right, bottom left
+     * @return corner
+     */
+    public Point getCorner(final int index) {
+        return corners[index];
+    }
+
+    /**
+     * @return true if the region is a quadrilateral that can be rectified
+     */
+    public boolean isQuadrilateral() {
+        return corners != null;
+    }
+
+    /**
+     * Calculates the bounding rectangle of all the region's points
+     *
+     * @param bounds array to write x, y, width, height to
+     * @return true if there are enough points for a rectangle
+     */
+    public boolean getBounds(final int[] bounds) {
+        if (points.size() < 3) return false;
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (final Point point : points) {
+            minX = Math.min(minX, point.x);
+            minY = Math.min(minY, point.y);
+            maxX = Math.max(maxX, point.x);
+            maxY = Math.max(maxY, point.y);
+        }
+        bounds[0] = (int) minX;
+        bounds[1] = (int) minY;
+        bounds[2] = (int) maxX - bounds[0];
+        bounds[3] = (int) maxY - bounds[1];
+        return true;
+    }
+}
@@ -7,21 +7,34 @@
 
 package ga.abzzezz.vertex;
 
+import ga.abzzezz.Singleton;
 import org.opencv.core.MatOfPoint;
 import org.opencv.core.Point;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
- * Handler for the current vertices for image processing
+ * Handler for the current vertices for image processing.
+ * Holds the points currently being placed and all completed, named regions.
+ * This is the editing side only: after every change the active regions are published with the processing parameters,
+ * processing threads never read the handler itself
  */
 public class VertexHandler {
+    /**
+     * Name given to a region if none is set
+     */
+    public static final String DEFAULT_REGION_NAME = "roi";
     /**
      * Point list, each one representing one corner
      */
     private final List<Point> points = new ArrayList<>();
     private final List<MatOfPoint> matOfPoints = new ArrayList<>();
+    /**
+     * Completed regions, read by the processing threads
+     */
+    private final List<Region> regions = new CopyOnWriteArrayList<>();
 
     /**
      * @return point list
@@ -30,13 +43,44 @@ public class VertexHandler {
         return points;
     }
 
-    public void addPoint(final int index, final Point point) {
+    public synchronized void addPoint(final int index, final Point point) {
         getPoints().add(index, point);
+        publish();
+    }
+
+    /**
+     * Clear the points and all regions
+     */
+    public synchronized void clear() {
+        clearPoints();
+        regions.clear();
+        publish();
     }
 
-    public void clear() {
+    /**
+     * Clear only the points currently being placed
+     */
+    public synchronized void clearPoints() {
+        getPoints().clear();
+        getMatOfPoints().clear();
+        publish();
+    }
+
+    /**
+     * Replace all points and regions with loaded regions. They are not published, the caller applies them with the other parameters
+     *
+     * @param loaded regions to edit from now on
+     */
+    public synchronized void setRegions(final List<Region> loaded) {
         getPoints().clear();
         getMatOfPoints().clear();
+        regions.clear();
+        for (final Region region : loaded) {
+            final MatOfPoint matOfPoint = new MatOfPoint();
+            matOfPoint.fromList(region.getPoints());
+            getMatOfPoints().add(matOfPoint);
+        }
+        regions.addAll(loaded);
     }
 
     public List<MatOfPoint> getMatOfPoints() {
@@ -44,11 +88,49 @@ public class VertexHandler {
     }
 
     /**
-     * Moves the points to a mat of points
+     * Moves the points to a mat of points and stores them as a region with a default name
      */
     public void move() {
+        move(DEFAULT_REGION_NAME + regions.size());
+    }
+
+    /**
+     * Moves the points to a mat of points and stores them as a named region
+     *
+     * @param name region name
+     */
+    public synchronized void move(final String name) {
         final MatOfPoint matOfPoint = new MatOfPoint();
         matOfPoint.fromList(points);
         getMatOfPoints().add(matOfPoint);
+        if (points.size() >= 3) regions.add(new Region(name, points));
+        publish();
+    }
+
+    /**
+     * @return all completed regions
+     */
+    public List<Region> getRegions() {
+        return regions;
+    }
+
+    /**
+     * Regions to process. If no region is completed yet, the points being placed count as one
+     *
+     * @return regions, empty if there is nothing to crop to
+     */
+    public synchronized List<Region> getActiveRegions() {
+        if (!regions.isEmpty()) return regions;
+        final List<Region> active = new ArrayList<>(1);
+        if (points.size() >= 3) active.add(new Region(DEFAULT_REGION_NAME, points));
+        return active;
+    }
+
+    /**
+     * Publish the active regions to the processing threads
+     */
+    private void publish() {
+        final List<Region> active = getActiveRegions();
+        Singleton.INSTANCE.getProcessingHandler().updateParameters(current -> current.withRegions(active));
     }
 }